@@ -6,6 +6,7 @@ import org.apache.flink.kubernetes.operator.crd.FlinkApplication;
 import org.apache.flink.kubernetes.operator.crd.FlinkApplicationList;
 import io.fabric8.kubernetes.api.model.apiextensions.CustomResourceDefinition;
 import io.fabric8.kubernetes.api.model.apiextensions.CustomResourceDefinitionBuilder;
+import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
@@ -14,47 +15,112 @@ import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.dsl.base.CustomResourceDefinitionContext;
 import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 import io.fabric8.kubernetes.client.informers.SharedInformerFactory;
+import org.apache.flink.kubernetes.operator.Utils.ArtifactCache;
+import org.apache.flink.kubernetes.operator.Utils.Constants;
+import org.apache.flink.kubernetes.operator.Utils.FlinkUtils;
+import org.apache.flink.kubernetes.operator.Utils.TracingUtils;
 import org.apache.flink.kubernetes.operator.controller.FlinkApplicationController;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
 /**
  * Main Class for Flink native k8s operator.
+ *
+ * <p>By default the operator manages the cluster it runs in. If {@code FLINK_OPERATOR_KUBE_CONTEXTS} lists kubeconfig
+ * contexts, every context gets its own client, informer and controller thread, so that a slow or unreachable cluster
+ * does not stall the others.
  */
 public class KubernetesOperatorEntrypoint {
 	private static final Logger LOG = LoggerFactory.getLogger(KubernetesOperatorEntrypoint.class);
 
     public static void main(String args[]) {
-        try (KubernetesClient k8sClient = new DefaultKubernetesClient()) {
-            String namespace = k8sClient.getNamespace();
-            if (namespace == null) {
-                LOG.info("No namespace found via config, assuming default.");
-                namespace = "default";
-            }
-
-            LOG.info("Using namespace : " + namespace);
-
-	        final CustomResourceDefinition crdDefinition = new CustomResourceDefinitionBuilder()
-		        .withNewMetadata().withName("flinkapplications.flink.k8s.io").endMetadata()
-		        .withNewSpec()
-		        .withGroup("flink.k8s.io")
-		        .withVersion("v1alpha1")
-		        .withNewNames().withKind("FlinkApplication").withPlural("flinkapplications").endNames()
-		        .withScope("Namespaced")
-		        .endSpec()
-		        .build();
-
-            final CustomResourceDefinitionContext crdContext = new CustomResourceDefinitionContext.Builder()
-                    .withVersion("v1alpha1")
-                    .withScope("Namespaced")
-                    .withGroup("flink.k8s.io")
-                    .withPlural("flinkapplications")
-                    .build();
-
-            final SharedInformerFactory informerFactory = k8sClient.informers();
-
-            final SharedIndexInformer<FlinkApplication> flinkAppinformer = informerFactory.sharedIndexInformerForCustomResource(
-            	crdContext,
+        TracingUtils.initFromEnvironment();
+        // Session mode jobs run their main method in the operator to build the job graph
+        FlinkUtils.interceptUserSystemExit();
+
+        final ArtifactCache artifactCache;
+        try {
+            // One cache for all clusters, the same jar is only fetched once
+            artifactCache = ArtifactCache.fromEnvironment();
+        } catch (IOException exception) {
+            LOG.error("Failed to initialize the artifact cache", exception);
+            return;
+        }
+
+        final List<String> kubeContexts = getKubeContexts();
+        if (kubeContexts.isEmpty()) {
+            runController(new DefaultKubernetesClient(), null, artifactCache);
+            return;
+        }
+
+        final String restAddressTemplate = System.getenv(Constants.ENV_REST_ADDRESS_TEMPLATE);
+        if (restAddressTemplate == null || !restAddressTemplate.contains(Constants.REST_ADDRESS_CONTEXT)) {
+            // Otherwise applications with the same namespace and name in two clusters reach the same JobManager
+            LOG.error("{} must contain {} to manage several clusters",
+                Constants.ENV_REST_ADDRESS_TEMPLATE, Constants.REST_ADDRESS_CONTEXT);
+            return;
+        }
+        LOG.info("Managing clusters of kubeconfig contexts {}", kubeContexts);
+        final ExecutorService controllerExecutor = Executors.newFixedThreadPool(kubeContexts.size());
+        for (String kubeContext : kubeContexts) {
+            controllerExecutor.execute(() -> runController(
+                new DefaultKubernetesClient(Config.autoConfigure(kubeContext)), kubeContext, artifactCache));
+        }
+        controllerExecutor.shutdown();
+        try {
+            controllerExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException exception) {
+            LOG.error("Operator interrupted");
+        }
+    }
+
+    /**
+     * Runs the controller of one Kubernetes cluster until it stops.
+     *
+     * @param kubeContext kubeconfig context of the cluster, or null for the default cluster
+     */
+    private static void runController(KubernetesClient kubernetesClient, String kubeContext, ArtifactCache artifactCache) {
+        try (KubernetesClient k8sClient = kubernetesClient) {
+            createController(k8sClient, kubeContext, artifactCache).run();
+        } catch (KubernetesClientException exception) {
+            LOG.error("Kubernetes Client Exception : {}", exception);
+        }
+    }
+
+    /**
+     * Creates the controller of one Kubernetes cluster and starts its informer.
+     *
+     * @param kubeContext kubeconfig context of the cluster, or null for the default cluster
+     */
+    static FlinkApplicationController createController(KubernetesClient k8sClient, String kubeContext, ArtifactCache artifactCache) {
+        String namespace = k8sClient.getNamespace();
+        if (namespace == null) {
+            LOG.info("No namespace found via config, assuming default.");
+            namespace = "default";
+        }
+
+        LOG.info("Using namespace : {} of cluster {}", namespace, kubeContext == null ? "default" : kubeContext);
+
+        final CustomResourceDefinitionContext crdContext = new CustomResourceDefinitionContext.Builder()
+                .withVersion("v1alpha1")
+                .withScope("Namespaced")
+                .withGroup("flink.k8s.io")
+                .withPlural("flinkapplications")
+                .build();
+
+        final SharedInformerFactory informerFactory = k8sClient.informers();
+
+        final SharedIndexInformer<FlinkApplication> flinkAppinformer = informerFactory.sharedIndexInformerForCustomResource(
+        	crdContext,
 	            FlinkApplication.class,
 	            FlinkApplicationList.class,
 	            10 * 60 * 1000);
@@ -65,27 +131,56 @@ public class KubernetesOperatorEntrypoint {
 //							new OperationContext().withNamespace("default"), // <- Namespace which you want to observe
 //							30 * 1000L);
 
-	        MixedOperation<FlinkApplication, FlinkApplicationList, DoneableFlinkApplication, Resource<FlinkApplication, DoneableFlinkApplication>> flinkAppK8sClient =
-		        k8sClient.customResources(
-		        	crdDefinition,
-			        FlinkApplication.class,
-			        FlinkApplicationList.class,
-			        DoneableFlinkApplication.class);
+        final MixedOperation<FlinkApplication, FlinkApplicationList, DoneableFlinkApplication, Resource<FlinkApplication, DoneableFlinkApplication>> flinkAppK8sClient =
+            getFlinkAppClient(k8sClient);
 
-            FlinkApplicationController flinkApplicationController = new FlinkApplicationController(
+        FlinkApplicationController flinkApplicationController = new FlinkApplicationController(
 	            k8sClient,
 	            flinkAppK8sClient,
 	            flinkAppinformer,
-	            namespace);
+	            artifactCache,
+	            namespace,
+	            kubeContext);
 
-            flinkApplicationController.create();
-            informerFactory.startAllRegisteredInformers();
-            informerFactory.addSharedInformerEventListener(
-            	exception -> LOG.error("Exception occurred, but caught", exception));
+        flinkApplicationController.create();
+        informerFactory.startAllRegisteredInformers();
+        informerFactory.addSharedInformerEventListener(
+        	exception -> LOG.error("Exception occurred, but caught", exception));
 
-            flinkApplicationController.run();
-        } catch (KubernetesClientException exception) {
-            LOG.error("Kubernetes Client Exception : {}", exception);
+        return flinkApplicationController;
+    }
+
+    /**
+     * Client of the FlinkApplication custom resources of the cluster.
+     */
+    static MixedOperation<FlinkApplication, FlinkApplicationList, DoneableFlinkApplication, Resource<FlinkApplication, DoneableFlinkApplication>> getFlinkAppClient(
+            KubernetesClient k8sClient) {
+        final CustomResourceDefinition crdDefinition = new CustomResourceDefinitionBuilder()
+            .withNewMetadata().withName("flinkapplications.flink.k8s.io").endMetadata()
+            .withNewSpec()
+            .withGroup("flink.k8s.io")
+            .withVersion("v1alpha1")
+            .withNewNames().withKind("FlinkApplication").withPlural("flinkapplications").endNames()
+            .withScope("Namespaced")
+            .endSpec()
+            .build();
+
+        return k8sClient.customResources(
+            crdDefinition,
+            FlinkApplication.class,
+            FlinkApplicationList.class,
+            DoneableFlinkApplication.class);
+    }
+
+    private static List<String> getKubeContexts() {
+        final String kubeContexts = System.getenv(Constants.ENV_KUBE_CONTEXTS);
+        if (kubeContexts == null || kubeContexts.trim().isEmpty()) {
+            return Collections.emptyList();
         }
+        return Arrays.stream(kubeContexts.split(","))
+            .map(String::trim)
+            .filter(kubeContext -> !kubeContext.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,261 @@
+package org.apache.flink.kubernetes.operator.Utils;
+
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.util.StringUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Operator-side cache of user jars.
+ *
+ * <p>Remote jar URIs are fetched once, verified by their SHA-256 checksum and stored under the checksum, so the same
+ * jar used by many applications or upgrades is only stored and downloaded once. The least recently used jars are
+ * evicted when the cache exceeds its size limit, except for jars pinned by running clusters. Jars with the local or
+ * file scheme are used in place.
+ *
+ * <p>A URI fetched without an expected checksum is cached by the URI for the lifetime of the operator, so a changed
+ * content behind the same URI is only noticed with a checksum or after a restart.
+ */
+public class ArtifactCache {
+	private static final Logger LOG = LoggerFactory.getLogger(ArtifactCache.class);
+
+	private static final String JAR_SUFFIX = ".jar";
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File cacheDir;
+	private final long maxSizeBytes;
+	// Whether the cache directory is mounted at the same path into the Flink pods
+	private final boolean shared;
+
+	// checksum -> size in bytes, in access order
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, String> checksumsByUri = new ConcurrentHashMap<>();
+	private final Map<String, Object> uriLocks = new ConcurrentHashMap<>();
+	// owner -> checksum of the jar the owner still reads from the cache
+	private final Map<String, String> pinnedChecksums = new HashMap<>();
+	private long totalSizeBytes;
+
+	public ArtifactCache(File cacheDir, long maxSizeBytes, boolean shared) throws IOException {
+		this.cacheDir = cacheDir;
+		this.maxSizeBytes = maxSizeBytes;
+		this.shared = shared;
+		Files.createDirectories(cacheDir.toPath());
+		loadExistingEntries();
+	}
+
+	public static ArtifactCache fromEnvironment() throws IOException {
+		final String cacheDir = System.getenv().getOrDefault(
+			Constants.ENV_ARTIFACT_CACHE_DIR, Constants.DEFAULT_ARTIFACT_CACHE_DIR);
+		final String maxSizeMb = System.getenv().getOrDefault(
+			Constants.ENV_ARTIFACT_CACHE_MAX_SIZE_MB, String.valueOf(Constants.DEFAULT_ARTIFACT_CACHE_MAX_SIZE_MB));
+		final boolean shared = Boolean.parseBoolean(System.getenv(Constants.ENV_ARTIFACT_CACHE_SHARED));
+		return new ArtifactCache(new File(cacheDir), Long.parseLong(maxSizeMb) * 1024 * 1024, shared);
+	}
+
+	public boolean isShared() {
+		return shared;
+	}
+
+	/**
+	 * Returns a local file with the content of the jar URI, fetching it only if it is not cached yet.
+	 *
+	 * @param jarURI URI of the jar
+	 * @param expectedChecksum expected SHA-256 of the jar in hex, or null to skip the verification
+	 */
+	public File resolve(String jarURI, String expectedChecksum) throws IOException {
+		return resolve(jarURI, expectedChecksum, null);
+	}
+
+	/**
+	 * Returns a local file with the content of the jar URI and pins it for the owner, see {@link #pin}.
+	 *
+	 * @param jarURI URI of the jar
+	 * @param expectedChecksum expected SHA-256 of the jar in hex, or null to skip the verification
+	 * @param owner owner to pin the jar for, or null to not pin it
+	 */
+	public File resolve(String jarURI, String expectedChecksum, String owner) throws IOException {
+		final URI uri = URI.create(jarURI);
+		if (uri.getScheme() == null || "local".equals(uri.getScheme()) || "file".equals(uri.getScheme())) {
+			return new File(uri.getPath());
+		}
+
+		synchronized (uriLocks.computeIfAbsent(jarURI, key -> new Object())) {
+			final String cachedChecksum = checksumsByUri.get(jarURI);
+			if (cachedChecksum != null
+				&& (expectedChecksum == null || expectedChecksum.equalsIgnoreCase(cachedChecksum))
+				&& touch(cachedChecksum)) {
+				LOG.debug("Using cached artifact {} for {}", cachedChecksum, jarURI);
+				return pinAndGetFile(owner, cachedChecksum);
+			}
+			if (expectedChecksum != null && touch(expectedChecksum.toLowerCase())) {
+				// Same content already fetched for another URI or before a restart
+				checksumsByUri.put(jarURI, expectedChecksum.toLowerCase());
+				return pinAndGetFile(owner, expectedChecksum.toLowerCase());
+			}
+
+			final String checksum = download(uri, expectedChecksum);
+			checksumsByUri.put(jarURI, checksum);
+			return pinAndGetFile(owner, checksum);
+		}
+	}
+
+	/**
+	 * Keeps the jar from being evicted while the owner, e.g. a running application cluster, reads it from the cache.
+	 * An owner pins one jar at a time, pinning another one releases the previous jar.
+	 */
+	public synchronized void pin(String owner, String checksum) {
+		pinnedChecksums.put(owner, checksum.toLowerCase());
+	}
+
+	/**
+	 * Releases the jar pinned by the owner, it is evicted as usual from now on.
+	 */
+	public synchronized void unpin(String owner) {
+		pinnedChecksums.remove(owner);
+	}
+
+	private File pinAndGetFile(String owner, String checksum) {
+		if (owner != null) {
+			pin(owner, checksum);
+		}
+		return getFile(checksum);
+	}
+
+	/**
+	 * URI under which the Flink pods can read the cached jar, only valid for a shared cache.
+	 */
+	public String toLocalURI(File jarFile) {
+		return "local://" + jarFile.getAbsolutePath();
+	}
+
+	private String download(URI uri, String expectedChecksum) throws IOException {
+		final long startTime = System.currentTimeMillis();
+		final File tmpFile = File.createTempFile("artifact-", TMP_SUFFIX, cacheDir);
+		final String checksum;
+		try {
+			final MessageDigest digest = newDigest();
+			try (InputStream in = new DigestInputStream(open(uri), digest);
+				OutputStream out = Files.newOutputStream(tmpFile.toPath())) {
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+			}
+			checksum = StringUtils.byteToHexString(digest.digest());
+			if (expectedChecksum != null && !expectedChecksum.equalsIgnoreCase(checksum)) {
+				throw new IOException(String.format(
+					"Checksum mismatch for %s, expected %s but was %s", uri, expectedChecksum, checksum));
+			}
+
+			synchronized (this) {
+				final File target = getFile(checksum);
+				if (entries.containsKey(checksum) && target.exists()) {
+					// Same content under another URI, keep the existing copy
+					touch(checksum);
+				} else {
+					Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					entries.put(checksum, target.length());
+					totalSizeBytes += target.length();
+					evict(checksum);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(tmpFile.toPath());
+		}
+		LOG.info("Cached artifact {} as {} in {} ms", uri, checksum, System.currentTimeMillis() - startTime);
+		return checksum;
+	}
+
+	private static InputStream open(URI uri) throws IOException {
+		if ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) {
+			return uri.toURL().openStream();
+		}
+		// Any file system supported by Flink, e.g. s3, hdfs or oss
+		return FileSystem.get(uri).open(new Path(uri));
+	}
+
+	/**
+	 * Marks the entry as recently used.
+	 *
+	 * @return whether the entry is still cached
+	 */
+	private synchronized boolean touch(String checksum) {
+		final File file = getFile(checksum);
+		if (entries.get(checksum) == null || !file.exists()) {
+			return false;
+		}
+		// The modification time keeps the LRU order across operator restarts
+		file.setLastModified(System.currentTimeMillis());
+		return true;
+	}
+
+	private synchronized void evict(String keepChecksum) {
+		final Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while (totalSizeBytes > maxSizeBytes && iterator.hasNext()) {
+			final Map.Entry<String, Long> entry = iterator.next();
+			if (entry.getKey().equals(keepChecksum) || pinnedChecksums.containsValue(entry.getKey())) {
+				continue;
+			}
+			iterator.remove();
+			totalSizeBytes -= entry.getValue();
+			checksumsByUri.values().removeIf(entry.getKey()::equals);
+			if (!getFile(entry.getKey()).delete()) {
+				LOG.warn("Failed to delete evicted artifact {}", entry.getKey());
+			}
+			LOG.info("Evicted artifact {} from the cache", entry.getKey());
+		}
+	}
+
+	private synchronized void loadExistingEntries() {
+		final File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(JAR_SUFFIX) || name.endsWith(TMP_SUFFIX));
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		for (File file : files) {
+			if (file.getName().endsWith(TMP_SUFFIX)) {
+				// Left over from an interrupted download
+				file.delete();
+				continue;
+			}
+			final String checksum = file.getName().substring(0, file.getName().length() - JAR_SUFFIX.length());
+			entries.put(checksum, file.length());
+			totalSizeBytes += file.length();
+		}
+		LOG.info("Loaded {} cached artifacts with {} bytes from {}", entries.size(), totalSizeBytes, cacheDir);
+	}
+
+	private File getFile(String checksum) {
+		return new File(cacheDir, checksum + JAR_SUFFIX);
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
+}
@@ -3,9 +3,37 @@ package org.apache.flink.kubernetes.operator.Utils;
 public class Constants {
 	public static final String FLINK_NATIVE_K8S_OPERATOR_NAME = "flink-native-k8s-operator";
 	public static final String KUBERNETES_APP_TARGET = "kubernetes-application";
+	public static final String KUBERNETES_SESSION_TARGET = "kubernetes-session";
+
+	public static final String MODE_APPLICATION = "application";
+	public static final String MODE_SESSION = "session";
+	public static final String DEFAULT_SESSION_CLUSTER_ID = "flink-session";
+
+	public static final String UPGRADE_MODE_SAVEPOINT = "savepoint";
+	public static final String UPGRADE_MODE_LAST_CHECKPOINT = "last-checkpoint";
+	public static final String UPGRADE_MODE_STATELESS = "stateless";
 
 	public static final String REST_SVC_NAME_SUFFIX = "-rest";
 
 	public static final String INGRESS_API_VERSION = "networking.k8s.io/v1beta1";
 	public static final String INGRESS_SUFFIX = ".flink.k8s.io";
+
+	public static final String ENV_ARTIFACT_CACHE_DIR = "FLINK_OPERATOR_ARTIFACT_CACHE_DIR";
+	public static final String ENV_ARTIFACT_CACHE_MAX_SIZE_MB = "FLINK_OPERATOR_ARTIFACT_CACHE_MAX_SIZE_MB";
+	public static final String ENV_ARTIFACT_CACHE_SHARED = "FLINK_OPERATOR_ARTIFACT_CACHE_SHARED";
+	public static final String DEFAULT_ARTIFACT_CACHE_DIR = "/tmp/flink-operator-artifacts";
+	public static final long DEFAULT_ARTIFACT_CACHE_MAX_SIZE_MB = 2048;
+
+	public static final String ENV_KUBE_CONTEXTS = "FLINK_OPERATOR_KUBE_CONTEXTS";
+	public static final String ENV_REST_ADDRESS_TEMPLATE = "FLINK_OPERATOR_REST_ADDRESS_TEMPLATE";
+	// Placeholders of the REST address template
+	public static final String REST_ADDRESS_CLUSTER = "{cluster}";
+	public static final String REST_ADDRESS_NAMESPACE = "{namespace}";
+	public static final String REST_ADDRESS_PORT = "{port}";
+	public static final String REST_ADDRESS_CONTEXT = "{context}";
+	public static final String DEFAULT_REST_ADDRESS_TEMPLATE = "http://{cluster}-rest.{namespace}:{port}";
+
+	public static final String ENV_OTLP_ENDPOINT = "OTEL_EXPORTER_OTLP_ENDPOINT";
+
+	public static final String FINALIZER_NAME = "flinkapplications.flink.k8s.io/finalizer";
 }
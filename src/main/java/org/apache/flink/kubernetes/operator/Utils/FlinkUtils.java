@@ -1,9 +1,13 @@
 package org.apache.flink.kubernetes.operator.Utils;
 
 import org.apache.flink.kubernetes.operator.crd.spec.FlinkApplicationSpec;
+import org.apache.flink.api.common.JobID;
 import org.apache.flink.client.program.ClusterClient;
+import org.apache.flink.client.program.PackagedProgram;
+import org.apache.flink.client.program.PackagedProgramUtils;
 import org.apache.flink.client.program.rest.RestClusterClient;
 import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.ClusterOptions;
 import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.CoreOptions;
@@ -15,28 +19,132 @@ import org.apache.flink.configuration.RestOptions;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.kubernetes.configuration.KubernetesConfigOptions;
 import org.apache.flink.runtime.highavailability.nonha.standalone.StandaloneClientHAServices;
+import org.apache.flink.runtime.rest.messages.EmptyRequestBody;
+import org.apache.flink.runtime.rest.messages.JobMessageParameters;
+import org.apache.flink.runtime.rest.messages.checkpoints.CheckpointConfigHeaders;
+import org.apache.flink.runtime.rest.messages.checkpoints.CheckpointConfigInfo;
+import org.apache.flink.runtime.rest.messages.checkpoints.CheckpointStatistics;
+import org.apache.flink.runtime.rest.messages.checkpoints.CheckpointingStatistics;
+import org.apache.flink.runtime.rest.messages.checkpoints.CheckpointingStatisticsHeaders;
+import org.apache.flink.runtime.jobgraph.JobGraph;
 import org.apache.flink.runtime.jobgraph.SavepointConfigOptions;
+import org.apache.flink.runtime.jobgraph.SavepointRestoreSettings;
+import org.apache.flink.runtime.rest.util.RestClientException;
+import org.apache.flink.runtime.rest.util.RestMapperUtils;
+import org.apache.flink.runtime.security.FlinkSecurityManager;
+import org.apache.flink.streaming.api.environment.CheckpointConfig;
+import org.apache.flink.streaming.api.environment.ExecutionCheckpointingOptions;
+import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.StringUtils;
 
+import org.apache.flink.shaded.jackson2.com.fasterxml.jackson.databind.JsonNode;
+
+import io.fabric8.kubernetes.client.utils.Serialization;
+
+import java.io.File;
+import java.net.HttpURLConnection;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 public class FlinkUtils {
 
-	public static Configuration getEffectiveConfig(String namespace, String clusterId, FlinkApplicationSpec spec) throws Exception {
-		final String flinkConfDir = System.getenv().get(ConfigConstants.ENV_FLINK_CONF_DIR);
-		final Configuration effectiveConfig;
-		if (flinkConfDir != null) {
-			effectiveConfig = GlobalConfiguration.loadConfiguration(flinkConfDir);
-		} else {
-			effectiveConfig = new Configuration();
+	private static final int MIN_RETAINED_CHECKPOINTS = 2;
+	// External path of checkpoints that are not persisted, e.g. with the memory state backend
+	private static final String NOT_EXTERNALLY_ADDRESSABLE = "<checkpoint-not-externally-addressable>";
+
+	// Loaded once and shared by all applications, effective configs only differ from it in a few keys
+	private static Configuration baseConfig;
+	private static Map<String, String> baseConfigMap;
+
+	/**
+	 * Returns the flink-conf.yaml of the operator. The returned configuration is shared and must not be modified.
+	 */
+	public static synchronized Configuration getBaseConfig() {
+		if (baseConfig == null) {
+			final String flinkConfDir = System.getenv().get(ConfigConstants.ENV_FLINK_CONF_DIR);
+			if (flinkConfDir != null) {
+				baseConfig = TracingUtils.call(
+					"flink.loadGlobalConfiguration", () -> GlobalConfiguration.loadConfiguration(flinkConfDir));
+			} else {
+				baseConfig = new Configuration();
+			}
+			baseConfigMap = baseConfig.toMap();
+		}
+		return baseConfig;
+	}
+
+	/**
+	 * Returns the entries of the configuration that differ from the base configuration.
+	 */
+	public static Map<String, String> computeConfigOverrides(Configuration config) {
+		getBaseConfig();
+		final Map<String, String> overrides = new HashMap<>();
+		config.toMap().forEach((key, value) -> {
+			if (!value.equals(baseConfigMap.get(key))) {
+				overrides.put(key, value);
+			}
+		});
+		return overrides;
+	}
+
+	/**
+	 * Builds the configuration of a Flink application.
+	 *
+	 * @param kubeContext kubeconfig context of the Kubernetes cluster to deploy to, or null for the default one
+	 */
+	public static Configuration getEffectiveConfig(
+			String kubeContext,
+			String namespace,
+			String clusterId,
+			FlinkApplicationSpec spec) throws Exception {
+		return TracingUtils.call(
+			"flink.getEffectiveConfig", () -> buildEffectiveConfig(kubeContext, namespace, clusterId, spec));
+	}
+
+	private static Configuration buildEffectiveConfig(
+			String kubeContext,
+			String namespace,
+			String clusterId,
+			FlinkApplicationSpec spec) throws Exception {
+		final Configuration effectiveConfig = new Configuration(getBaseConfig());
+		if (kubeContext != null) {
+			effectiveConfig.set(KubernetesConfigOptions.CONTEXT, kubeContext);
+		}
+
+		final String mode = getMode(spec);
+		if (!Constants.MODE_APPLICATION.equals(mode) && !Constants.MODE_SESSION.equals(mode)) {
+			throw new IllegalArgumentException(String.format("Unknown mode %s, expected %s or %s",
+				mode, Constants.MODE_APPLICATION, Constants.MODE_SESSION));
+		}
+
+		final String upgradeMode = getUpgradeMode(spec);
+		if (!Constants.UPGRADE_MODE_SAVEPOINT.equals(upgradeMode)
+			&& !Constants.UPGRADE_MODE_LAST_CHECKPOINT.equals(upgradeMode)
+			&& !Constants.UPGRADE_MODE_STATELESS.equals(upgradeMode)) {
+			throw new IllegalArgumentException(String.format("Unknown upgrade mode %s, expected %s, %s or %s",
+				upgradeMode,
+				Constants.UPGRADE_MODE_SAVEPOINT,
+				Constants.UPGRADE_MODE_LAST_CHECKPOINT,
+				Constants.UPGRADE_MODE_STATELESS));
 		}
 
 		// Basic config options
 		final URI uri = new URI(spec.getJarURI());
 		effectiveConfig.setString(KubernetesConfigOptions.NAMESPACE, namespace);
-		effectiveConfig.setString(KubernetesConfigOptions.CLUSTER_ID, clusterId);
-		effectiveConfig.set(DeploymentOptions.TARGET, Constants.KUBERNETES_APP_TARGET);
+		if (isSessionMode(spec)) {
+			// Jobs in session mode run on the shared session cluster instead of their own cluster
+			effectiveConfig.setString(KubernetesConfigOptions.CLUSTER_ID, getSessionClusterId(spec));
+			effectiveConfig.set(DeploymentOptions.TARGET, Constants.KUBERNETES_SESSION_TARGET);
+		} else {
+			effectiveConfig.setString(KubernetesConfigOptions.CLUSTER_ID, clusterId);
+			effectiveConfig.set(DeploymentOptions.TARGET, Constants.KUBERNETES_APP_TARGET);
+		}
 		// Set rest service exposed type to clusterIP since we will use ingress to access the webui
 		effectiveConfig.set(KubernetesConfigOptions.REST_SERVICE_EXPOSED_TYPE, KubernetesConfigOptions.ServiceExposedType.ClusterIP);
 
@@ -78,6 +186,14 @@ public class FlinkUtils {
 		if (!StringUtils.isNullOrWhitespaceOnly(spec.getSavepointsDir())) {
 			effectiveConfig.setString(CheckpointingOptions.SAVEPOINT_DIRECTORY, spec.getSavepointsDir());
 		}
+		if (Constants.UPGRADE_MODE_LAST_CHECKPOINT.equals(getUpgradeMode(spec))) {
+			// The checkpoint to upgrade from must survive the cancellation, and must not be subsumed by a checkpoint
+			// completing between looking it up and cancelling the job
+			effectiveConfig.set(ExecutionCheckpointingOptions.EXTERNALIZED_CHECKPOINT,
+				CheckpointConfig.ExternalizedCheckpointCleanup.RETAIN_ON_CANCELLATION);
+			effectiveConfig.set(CheckpointingOptions.MAX_RETAINED_CHECKPOINTS,
+				Math.max(MIN_RETAINED_CHECKPOINTS, effectiveConfig.get(CheckpointingOptions.MAX_RETAINED_CHECKPOINTS)));
+		}
 
 		// Dynamic configuration
 		if (spec.getFlinkConfig() != null && !spec.getFlinkConfig().isEmpty()) {
@@ -89,13 +205,193 @@ public class FlinkUtils {
 
 
 	public static ClusterClient<String> getRestClusterClient(Configuration config) throws Exception {
-		final String clusterId = config.get(KubernetesConfigOptions.CLUSTER_ID);
-		final String namespace = config.get(KubernetesConfigOptions.NAMESPACE);
-		final int port = config.getInteger(RestOptions.PORT);
-		final String restServerAddress = String.format("http://%s-rest.%s:%s", clusterId, namespace, port);
+		final String restServerAddress = getRestServerAddress(
+			System.getenv().getOrDefault(Constants.ENV_REST_ADDRESS_TEMPLATE, Constants.DEFAULT_REST_ADDRESS_TEMPLATE),
+			config);
 		return new RestClusterClient<>(
 			config,
-			clusterId,
+			config.get(KubernetesConfigOptions.CLUSTER_ID),
 			new StandaloneClientHAServices(restServerAddress));
 	}
+
+	/**
+	 * Builds the address of the JobManager REST service from a template with the placeholders {@code {cluster}},
+	 * {@code {namespace}}, {@code {port}} and {@code {context}}. Clusters with the same namespace and name in several
+	 * Kubernetes clusters are only told apart by the context.
+	 */
+	public static String getRestServerAddress(String template, Configuration config) {
+		final String kubeContext = config.get(KubernetesConfigOptions.CONTEXT);
+		return template
+			.replace(Constants.REST_ADDRESS_CLUSTER, config.get(KubernetesConfigOptions.CLUSTER_ID))
+			.replace(Constants.REST_ADDRESS_NAMESPACE, config.get(KubernetesConfigOptions.NAMESPACE))
+			.replace(Constants.REST_ADDRESS_PORT, String.valueOf(config.getInteger(RestOptions.PORT)))
+			.replace(Constants.REST_ADDRESS_CONTEXT, kubeContext == null ? "" : kubeContext);
+	}
+
+	/**
+	 * Mode of the application, application mode if not set.
+	 */
+	public static String getMode(FlinkApplicationSpec spec) {
+		return StringUtils.isNullOrWhitespaceOnly(spec.getMode()) ? Constants.MODE_APPLICATION : spec.getMode();
+	}
+
+	public static boolean isSessionMode(FlinkApplicationSpec spec) {
+		return Constants.MODE_SESSION.equals(getMode(spec));
+	}
+
+	/**
+	 * Whether the configuration describes a shared session cluster rather than the cluster of one application.
+	 */
+	public static boolean isSessionCluster(Configuration config) {
+		return Constants.KUBERNETES_SESSION_TARGET.equals(config.get(DeploymentOptions.TARGET));
+	}
+
+	public static String getUpgradeMode(FlinkApplicationSpec spec) {
+		return StringUtils.isNullOrWhitespaceOnly(spec.getUpgradeMode())
+			? Constants.UPGRADE_MODE_SAVEPOINT : spec.getUpgradeMode();
+	}
+
+	/**
+	 * Looks up the external path of the latest completed checkpoint or savepoint of a job through the REST
+	 * checkpoint statistics.
+	 *
+	 * @return the path, or null if the job has no externally addressable checkpoint
+	 */
+	public static String getLatestCheckpointPath(ClusterClient<String> clusterClient, JobID jobId) throws Exception {
+		final CheckpointingStatisticsHeaders headers = CheckpointingStatisticsHeaders.getInstance();
+		final JobMessageParameters parameters = headers.getUnresolvedMessageParameters();
+		parameters.jobPathParameter.resolve(jobId);
+		final CheckpointingStatistics statistics = TracingUtils.call("flink.getCheckpointStatistics", () ->
+			toRestClusterClient(clusterClient).sendRequest(headers, parameters, EmptyRequestBody.getInstance()).get());
+
+		final CheckpointingStatistics.LatestCheckpoints latest = statistics.getLatestCheckpoints();
+		CheckpointStatistics.CompletedCheckpointStatistics latestCompleted = latest.getCompletedCheckpoint();
+		final CheckpointStatistics.CompletedCheckpointStatistics latestSavepoint = latest.getSavepoint();
+		// Checkpoints and savepoints share the id counter
+		if (latestSavepoint != null && (latestCompleted == null || latestSavepoint.getId() > latestCompleted.getId())) {
+			latestCompleted = latestSavepoint;
+		}
+		if (latestCompleted == null) {
+			return null;
+		}
+		final String externalPath = latestCompleted.getExternalPath();
+		return StringUtils.isNullOrWhitespaceOnly(externalPath) || NOT_EXTERNALLY_ADDRESSABLE.equals(externalPath)
+			? null : externalPath;
+	}
+
+	/**
+	 * Whether the checkpoints of the job survive its cancellation, i.e. they are externalized and not deleted on
+	 * cancellation. The configuration of the running job is checked, as the Flink config of the spec may override the
+	 * retention set by the operator.
+	 */
+	public static boolean isRetainedOnCancellation(ClusterClient<String> clusterClient, JobID jobId) throws Exception {
+		final JsonNode externalization = getExternalizationConfig(clusterClient, jobId);
+		return externalization != null
+			&& externalization.path(CheckpointConfigInfo.ExternalizedCheckpointInfo.FIELD_NAME_ENABLED).asBoolean(false)
+			&& !externalization.path(CheckpointConfigInfo.ExternalizedCheckpointInfo.FIELD_NAME_DELETE_ON_CANCELLATION).asBoolean(true);
+	}
+
+	/**
+	 * Whether the checkpoints of a failed job are retained, which is the case for all externalized checkpoints.
+	 */
+	public static boolean isRetainedOnFailure(ClusterClient<String> clusterClient, JobID jobId) throws Exception {
+		final JsonNode externalization = getExternalizationConfig(clusterClient, jobId);
+		return externalization != null
+			&& externalization.path(CheckpointConfigInfo.ExternalizedCheckpointInfo.FIELD_NAME_ENABLED).asBoolean(false);
+	}
+
+	/**
+	 * Returns the externalized checkpoint config of the job, or null if checkpointing is not enabled.
+	 */
+	private static JsonNode getExternalizationConfig(ClusterClient<String> clusterClient, JobID jobId) throws Exception {
+		final CheckpointConfigHeaders headers = CheckpointConfigHeaders.getInstance();
+		final JobMessageParameters parameters = headers.getUnresolvedMessageParameters();
+		parameters.jobPathParameter.resolve(jobId);
+		final CheckpointConfigInfo checkpointConfig;
+		try {
+			checkpointConfig = TracingUtils.call("flink.getCheckpointConfig", () ->
+				toRestClusterClient(clusterClient).sendRequest(headers, parameters, EmptyRequestBody.getInstance()).get());
+		} catch (ExecutionException e) {
+			// Answered with not found if checkpointing is not enabled for the job
+			if (ExceptionUtils.findThrowable(e, RestClientException.class)
+				.filter(restException -> restException.getHttpResponseStatus().code() == HttpURLConnection.HTTP_NOT_FOUND)
+				.isPresent()) {
+				return null;
+			}
+			throw e;
+		}
+		// Read through the REST representation, the response has no accessors for its fields
+		return RestMapperUtils.getStrictObjectMapper()
+			.valueToTree(checkpointConfig)
+			.get(CheckpointConfigInfo.FIELD_NAME_EXTERNALIZED_CHECKPOINT_CONFIG);
+	}
+
+	private static RestClusterClient<String> toRestClusterClient(ClusterClient<String> clusterClient) {
+		if (!(clusterClient instanceof RestClusterClient)) {
+			throw new IllegalArgumentException("Checkpoint statistics require a RestClusterClient");
+		}
+		return (RestClusterClient<String>) clusterClient;
+	}
+
+	public static String getSessionClusterId(FlinkApplicationSpec spec) {
+		return StringUtils.isNullOrWhitespaceOnly(spec.getSessionClusterId())
+			? Constants.DEFAULT_SESSION_CLUSTER_ID : spec.getSessionClusterId();
+	}
+
+	/**
+	 * Installs a security manager that turns a {@code System.exit} of user code into an exception. Only threads that
+	 * run user code are monitored, see {@link #createJobGraph}.
+	 */
+	public static void interceptUserSystemExit() {
+		final Configuration config = new Configuration();
+		config.set(ClusterOptions.INTERCEPT_USER_SYSTEM_EXIT, ClusterOptions.UserSystemExitMode.THROW);
+		FlinkSecurityManager.setFromConfiguration(config);
+	}
+
+	/**
+	 * Builds the job graph of a session mode job from the user jar resolved by the operator. This runs the main method
+	 * of the user program in the operator JVM, a {@code System.exit} in it fails the call if
+	 * {@link #interceptUserSystemExit} was called.
+	 */
+	public static JobGraph createJobGraph(Configuration config, FlinkApplicationSpec spec, File jarFile) throws Exception {
+		FlinkSecurityManager.monitorUserSystemExitForCurrentThread();
+		try {
+			return TracingUtils.call("flink.createJobGraph", () -> buildJobGraph(config, spec, jarFile));
+		} finally {
+			FlinkSecurityManager.unmonitorUserSystemExitForCurrentThread();
+		}
+	}
+
+	private static JobGraph buildJobGraph(Configuration config, FlinkApplicationSpec spec, File jarFile) throws Exception {
+		final PackagedProgram program = PackagedProgram.newBuilder()
+			.setJarFile(jarFile)
+			.setEntryPointClassName(spec.getEntryClass())
+			.setArguments(spec.getMainArgs())
+			.setConfiguration(config)
+			.setSavepointRestoreSettings(SavepointRestoreSettings.fromConfiguration(config))
+			.build();
+		try {
+			final int parallelism = spec.getParallelism() > 0
+				? spec.getParallelism() : config.getInteger(CoreOptions.DEFAULT_PARALLELISM);
+			return PackagedProgramUtils.createJobGraph(program, config, parallelism, false);
+		} finally {
+			program.close();
+		}
+	}
+
+	/**
+	 * Hash of the spec as serialized to the CR, used to detect spec changes across operator restarts.
+	 */
+	public static String computeSpecHash(FlinkApplicationSpec spec) {
+		return sha256Hex(Serialization.asJson(spec));
+	}
+
+	private static String sha256Hex(String content) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return StringUtils.byteToHexString(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+	}
 }
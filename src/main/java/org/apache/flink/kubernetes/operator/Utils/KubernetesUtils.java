@@ -3,11 +3,15 @@ package org.apache.flink.kubernetes.operator.Utils;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.OwnerReference;
 import io.fabric8.kubernetes.api.model.OwnerReferenceBuilder;
+import io.fabric8.kubernetes.client.utils.Serialization;
 
 import java.util.Collections;
 import java.util.List;
 
 public class KubernetesUtils {
+	/** Longest message of a status condition or an event, the rest is cut off. */
+	public static final int MAX_MESSAGE_LENGTH = 1024;
+
 	public static void setOwnerReference(HasMetadata owner, List<HasMetadata> resources) {
 		final OwnerReference ownerReference = new OwnerReferenceBuilder()
 			.withName(owner.getMetadata().getName())
@@ -20,4 +24,35 @@ public class KubernetesUtils {
 		resources.forEach(resource ->
 			resource.getMetadata().setOwnerReferences(Collections.singletonList(ownerReference)));
 	}
+
+	/**
+	 * Deep copy of an object. Objects held in the informer cache are shared with all readers and must not be modified.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends HasMetadata> T clone(T resource) {
+		return (T) Serialization.unmarshal(Serialization.asJson(resource), resource.getClass());
+	}
+
+	/**
+	 * Message of the root cause of a failure. Wrapping exceptions only repeat it, e.g. the message of an
+	 * ExecutionException is the string of its cause.
+	 */
+	public static String getRootCauseMessage(Throwable throwable) {
+		Throwable rootCause = throwable;
+		while (rootCause.getCause() != null && rootCause.getCause() != rootCause) {
+			rootCause = rootCause.getCause();
+		}
+		return rootCause.getMessage() != null ? rootCause.getMessage() : rootCause.getClass().getName();
+	}
+
+	/**
+	 * Cuts a message off at {@link #MAX_MESSAGE_LENGTH}. Errors of the Flink REST API carry the whole server side
+	 * stack trace, which does not belong in the status or the events of an object.
+	 */
+	public static String truncateMessage(String message) {
+		if (message == null || message.length() <= MAX_MESSAGE_LENGTH) {
+			return message;
+		}
+		return message.substring(0, MAX_MESSAGE_LENGTH - 3) + "...";
+	}
 }
@@ -0,0 +1,57 @@
+package org.apache.flink.kubernetes.operator.Utils;
+
+/**
+ * Simple token bucket rate limiter. Starts full and refills continuously up to its capacity.
+ */
+public class TokenBucket {
+	private final double capacity;
+	private final double refillPerMs;
+
+	private double tokens;
+	private long lastRefillTime;
+
+	public TokenBucket(int capacity, double refillPerSecond) {
+		this.capacity = capacity;
+		this.refillPerMs = refillPerSecond / 1000;
+		this.tokens = capacity;
+		this.lastRefillTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Takes a token if one is available.
+	 *
+	 * @return whether a token was taken
+	 */
+	public synchronized boolean tryAcquire() {
+		refill();
+		if (tokens >= 1) {
+			tokens -= 1;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Takes a token, waiting until one is available.
+	 */
+	public void acquire() throws InterruptedException {
+		while (true) {
+			final long waitMs;
+			synchronized (this) {
+				refill();
+				if (tokens >= 1) {
+					tokens -= 1;
+					return;
+				}
+				waitMs = (long) Math.ceil((1 - tokens) / refillPerMs);
+			}
+			Thread.sleep(Math.max(1, waitMs));
+		}
+	}
+
+	private void refill() {
+		final long now = System.currentTimeMillis();
+		tokens = Math.min(capacity, tokens + (now - lastRefillTime) * refillPerMs);
+		lastRefillTime = now;
+	}
+}
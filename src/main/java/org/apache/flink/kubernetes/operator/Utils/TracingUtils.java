@@ -0,0 +1,131 @@
+package org.apache.flink.kubernetes.operator.Utils;
+
+import org.apache.flink.util.StringUtils;
+import org.apache.flink.util.function.SupplierWithException;
+import org.apache.flink.util.function.ThrowingRunnable;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Tracing of the reconcile loop and its calls to the apiserver and the Flink clusters.
+ *
+ * <p>Spans are exported through OTLP if {@code OTEL_EXPORTER_OTLP_ENDPOINT} is set, otherwise tracing is a no-op.
+ * Every span is tagged with the cluster, namespace and app of the logging context, and the trace and span id of the
+ * current span are added to the logging context, so log lines can be correlated with traces.
+ */
+public class TracingUtils {
+	private static final Logger LOG = LoggerFactory.getLogger(TracingUtils.class);
+
+	private static final String INSTRUMENTATION_NAME = "org.apache.flink.kubernetes.operator";
+
+	public static final String MDC_TRACE_ID = "traceId";
+	public static final String MDC_SPAN_ID = "spanId";
+
+	public static final AttributeKey<String> CLUSTER = AttributeKey.stringKey("cluster");
+	public static final AttributeKey<String> NAMESPACE = AttributeKey.stringKey("namespace");
+	public static final AttributeKey<String> APP = AttributeKey.stringKey("app");
+	public static final AttributeKey<String> ACTION = AttributeKey.stringKey("action");
+
+	private static volatile Tracer tracer = OpenTelemetry.noop().getTracer(INSTRUMENTATION_NAME);
+
+	/**
+	 * Uses the given OpenTelemetry instance, e.g. an SDK with an in-memory exporter in tests.
+	 */
+	public static void init(OpenTelemetry openTelemetry) {
+		tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+	}
+
+	public static void initFromEnvironment() {
+		final String endpoint = System.getenv(Constants.ENV_OTLP_ENDPOINT);
+		if (StringUtils.isNullOrWhitespaceOnly(endpoint)) {
+			LOG.info("{} is not set, tracing is disabled", Constants.ENV_OTLP_ENDPOINT);
+			return;
+		}
+		final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+			.setResource(Resource.getDefault().merge(Resource.create(
+				Attributes.of(AttributeKey.stringKey("service.name"), Constants.FLINK_NATIVE_K8S_OPERATOR_NAME))))
+			.addSpanProcessor(BatchSpanProcessor.builder(
+				OtlpGrpcSpanExporter.builder().setEndpoint(endpoint).build()).build())
+			.build();
+		init(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build());
+		// Flush the buffered spans on shutdown
+		Runtime.getRuntime().addShutdownHook(new Thread(tracerProvider::shutdown));
+		LOG.info("Exporting traces to {}", endpoint);
+	}
+
+	/**
+	 * Runs the action in a new span, which is a child of the current span if there is one.
+	 */
+	public static <R, E extends Throwable> R call(String spanName, SupplierWithException<R, E> action) throws E {
+		final SpanBuilder spanBuilder = tracer.spanBuilder(spanName);
+		final String cluster = MDC.get("cluster");
+		if (cluster != null) {
+			spanBuilder.setAttribute(CLUSTER, cluster);
+		}
+		final String namespace = MDC.get("namespace");
+		if (namespace != null) {
+			spanBuilder.setAttribute(NAMESPACE, namespace);
+		}
+		final String app = MDC.get("app");
+		if (app != null) {
+			spanBuilder.setAttribute(APP, app);
+		}
+		final Span span = spanBuilder.startSpan();
+
+		final String parentTraceId = MDC.get(MDC_TRACE_ID);
+		final String parentSpanId = MDC.get(MDC_SPAN_ID);
+		try (Scope ignored = span.makeCurrent()) {
+			if (span.getSpanContext().isValid()) {
+				MDC.put(MDC_TRACE_ID, span.getSpanContext().getTraceId());
+				MDC.put(MDC_SPAN_ID, span.getSpanContext().getSpanId());
+			}
+			return action.get();
+		} catch (Throwable t) {
+			span.recordException(t);
+			span.setStatus(StatusCode.ERROR);
+			throw t;
+		} finally {
+			span.end();
+			restoreMdc(MDC_TRACE_ID, parentTraceId);
+			restoreMdc(MDC_SPAN_ID, parentSpanId);
+		}
+	}
+
+	public static <E extends Throwable> void run(String spanName, ThrowingRunnable<E> action) throws E {
+		call(spanName, () -> {
+			action.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Tags the current span with the action that the reconcile takes, e.g. deploy or upgrade.
+	 */
+	public static void setAction(String action) {
+		Span.current().setAttribute(ACTION, action);
+	}
+
+	private static void restoreMdc(String key, String value) {
+		if (value == null) {
+			MDC.remove(key);
+		} else {
+			MDC.put(key, value);
+		}
+	}
+}
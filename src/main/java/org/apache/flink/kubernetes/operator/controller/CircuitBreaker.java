@@ -0,0 +1,104 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+/**
+ * Circuit breaker for the REST calls to the JobManager of one Flink cluster.
+ *
+ * <p>After {@code failureThreshold} consecutive failures the breaker opens and calls fail fast instead of waiting for
+ * the REST timeout. Once the open interval has passed, a single probe call is let through: if it succeeds the breaker
+ * closes again, otherwise it reopens with a doubled interval, up to {@code maxOpenIntervalMs}.
+ */
+public class CircuitBreaker {
+
+    /**
+     * States of the breaker.
+     */
+    public enum State {
+        // Calls go through
+        CLOSED,
+        // Calls fail fast until the next probe
+        OPEN,
+        // One probe call is in flight
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long initialOpenIntervalMs;
+    private final long maxOpenIntervalMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openIntervalMs;
+    private long nextProbeTime;
+
+    public CircuitBreaker(int failureThreshold, long initialOpenIntervalMs, long maxOpenIntervalMs) {
+        this.failureThreshold = failureThreshold;
+        this.initialOpenIntervalMs = initialOpenIntervalMs;
+        this.maxOpenIntervalMs = maxOpenIntervalMs;
+        this.openIntervalMs = initialOpenIntervalMs;
+    }
+
+    /**
+     * Whether a call may go through. Moves an open breaker to half-open once its probe is due.
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() >= nextProbeTime) {
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                return false;
+            default:
+                // Only the probe goes through while half-open
+                return false;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openIntervalMs = initialOpenIntervalMs;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            openIntervalMs = Math.min(maxOpenIntervalMs, openIntervalMs * 2);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            openIntervalMs = initialOpenIntervalMs;
+            open();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Time until the next probe is let through, 0 if the breaker is not open.
+     */
+    public synchronized long getMillisUntilProbe() {
+        return state == State.OPEN ? Math.max(0, nextProbeTime - System.currentTimeMillis()) : 0;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        nextProbeTime = System.currentTimeMillis() + openIntervalMs;
+    }
+
+    /**
+     * Thrown instead of calling a JobManager whose breaker is open.
+     */
+    public static class OpenException extends Exception {
+        public OpenException(String clusterKey, long millisUntilProbe) {
+            super("JobManager of " + clusterKey + " is unreachable, next probe in " + millisUntilProbe + " ms");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the controller loop. Instead of logging every reconcile, a summary with the rates since the last
+ * report is logged periodically, together with the queue latency of each priority lane and the number of Flink
+ * clusters whose circuit breaker is open.
+ */
+public class ControllerMetrics {
+    private static final Logger LOG = LoggerFactory.getLogger(ControllerMetrics.class);
+    private static final long REPORT_INTERVAL_MS = 60 * 1000;
+    // Latency samples kept per lane and report interval, later samples overwrite the oldest ones
+    private static final int MAX_LATENCY_SAMPLES = 4096;
+
+    private final LongAdder reconciles = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder fastFails = new LongAdder();
+    private final Map<PriorityWorkQueue.Priority, LatencySamples> queueLatencies = new EnumMap<>(PriorityWorkQueue.Priority.class);
+
+    // Kubeconfig context of the controller, or null for the default cluster
+    private final String kubeContext;
+    // Live view of the circuit breakers of the controller
+    private final Collection<CircuitBreaker> circuitBreakers;
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+
+    private long lastReportTime;
+    private long lastReconciles;
+    private long lastErrors;
+    private long lastFastFails;
+
+    public ControllerMetrics(String kubeContext, Collection<CircuitBreaker> circuitBreakers) {
+        this.kubeContext = kubeContext;
+        this.circuitBreakers = circuitBreakers;
+        for (PriorityWorkQueue.Priority priority : PriorityWorkQueue.Priority.values()) {
+            queueLatencies.put(priority, new LatencySamples());
+        }
+    }
+
+    public void start() {
+        lastReportTime = System.currentTimeMillis();
+        reporter.scheduleAtFixedRate(this::report, REPORT_INTERVAL_MS, REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        reporter.shutdownNow();
+    }
+
+    public void recordReconcile() {
+        reconciles.increment();
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Records a call to a JobManager that was skipped because its circuit breaker is open.
+     */
+    public void recordFastFail() {
+        fastFails.increment();
+    }
+
+    /**
+     * Records the time from adding a key to the work queue until its reconcile starts.
+     */
+    public void recordQueueLatency(PriorityWorkQueue.Priority priority, long latencyMillis) {
+        queueLatencies.get(priority).add(latencyMillis);
+    }
+
+    private void report() {
+        final long now = System.currentTimeMillis();
+        final long currentReconciles = reconciles.sum();
+        final long currentErrors = errors.sum();
+        final long currentFastFails = fastFails.sum();
+        final double seconds = Math.max(1, now - lastReportTime) / 1000.0;
+
+        LOG.info("Controller summary: cluster={}, reconciles/s={}, errors/s={}, reconciles={}, errors={}",
+            kubeContext == null ? "default" : kubeContext,
+            String.format("%.2f", (currentReconciles - lastReconciles) / seconds),
+            String.format("%.2f", (currentErrors - lastErrors) / seconds),
+            currentReconciles,
+            currentErrors);
+
+        final Map<CircuitBreaker.State, Integer> breakerStates = new EnumMap<>(CircuitBreaker.State.class);
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            breakerStates.put(state, 0);
+        }
+        for (CircuitBreaker circuitBreaker : circuitBreakers) {
+            breakerStates.merge(circuitBreaker.getState(), 1, Integer::sum);
+        }
+        LOG.info("Circuit breakers: cluster={}, closed={}, open={}, half-open={}, fast-fails/s={}",
+            kubeContext == null ? "default" : kubeContext,
+            breakerStates.get(CircuitBreaker.State.CLOSED),
+            breakerStates.get(CircuitBreaker.State.OPEN),
+            breakerStates.get(CircuitBreaker.State.HALF_OPEN),
+            String.format("%.2f", (currentFastFails - lastFastFails) / seconds));
+
+        for (Map.Entry<PriorityWorkQueue.Priority, LatencySamples> entry : queueLatencies.entrySet()) {
+            final long[] samples = entry.getValue().drain();
+            if (samples.length > 0) {
+                Arrays.sort(samples);
+                LOG.info("Queue latency of {} lane: cluster={}, count={}, p50={} ms, p99={} ms, max={} ms",
+                    entry.getKey(),
+                    kubeContext == null ? "default" : kubeContext,
+                    samples.length,
+                    percentile(samples, 0.5),
+                    percentile(samples, 0.99),
+                    samples[samples.length - 1]);
+            }
+        }
+
+        lastReportTime = now;
+        lastReconciles = currentReconciles;
+        lastErrors = currentErrors;
+        lastFastFails = currentFastFails;
+    }
+
+    private static long percentile(long[] sortedSamples, double percentile) {
+        final int index = (int) Math.ceil(percentile * sortedSamples.length) - 1;
+        return sortedSamples[Math.max(0, index)];
+    }
+
+    private static class LatencySamples {
+        private final long[] samples = new long[MAX_LATENCY_SAMPLES];
+        private int count;
+
+        private synchronized void add(long latencyMillis) {
+            samples[count % MAX_LATENCY_SAMPLES] = latencyMillis;
+            count++;
+        }
+
+        private synchronized long[] drain() {
+            final long[] drained = Arrays.copyOf(samples, Math.min(count, MAX_LATENCY_SAMPLES));
+            count = 0;
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import org.apache.flink.kubernetes.operator.Utils.Constants;
+import org.apache.flink.kubernetes.operator.Utils.KubernetesUtils;
+import org.apache.flink.kubernetes.operator.Utils.TokenBucket;
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.api.model.EventBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ObjectReferenceBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Emits Kubernetes Events for Flink applications.
+ *
+ * <p>Similar to the client-go event recorder, identical events within the aggregation window only increase the count
+ * of the existing event, and every involved object has a spam filter so that a flapping application cannot flood the
+ * apiserver. Events are written asynchronously and never block the caller.
+ */
+public class EventRecorder {
+    private static final Logger LOG = LoggerFactory.getLogger(EventRecorder.class);
+
+    public static final String TYPE_NORMAL = "Normal";
+    public static final String TYPE_WARNING = "Warning";
+
+    // Same defaults as the client-go spam filter: a burst of 25 events, then one event every 5 minutes per object
+    private static final int SPAM_FILTER_BURST = 25;
+    private static final double SPAM_FILTER_REFILL_PER_SECOND = 1.0 / 300;
+    private static final long AGGREGATION_WINDOW_MS = 10 * 60 * 1000;
+    private static final int MAX_CACHED_ENTRIES = 4096;
+
+    private final KubernetesClient kubernetesClient;
+    private final Map<String, TokenBucket> spamFilters = new LruMap<>(MAX_CACHED_ENTRIES);
+    private final Map<String, RecordedEvent> recordedEvents = new LruMap<>(MAX_CACHED_ENTRIES);
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+    public EventRecorder(KubernetesClient kubernetesClient) {
+        this.kubernetesClient = kubernetesClient;
+    }
+
+    public void normal(HasMetadata involvedObject, String reason, String message) {
+        record(involvedObject, TYPE_NORMAL, reason, message);
+    }
+
+    public void warning(HasMetadata involvedObject, String reason, String message) {
+        record(involvedObject, TYPE_WARNING, reason, message);
+    }
+
+    public synchronized void record(HasMetadata involvedObject, String type, String reason, String fullMessage) {
+        final String message = KubernetesUtils.truncateMessage(fullMessage);
+        final String objectKey = involvedObject.getMetadata().getNamespace() + "/" + involvedObject.getMetadata().getName();
+        final TokenBucket spamFilter = spamFilters.computeIfAbsent(
+            objectKey, key -> new TokenBucket(SPAM_FILTER_BURST, SPAM_FILTER_REFILL_PER_SECOND));
+        if (!spamFilter.tryAcquire()) {
+            LOG.debug("Dropping event {} for {}, rate limit exceeded", reason, objectKey);
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final String timestamp = DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(now).truncatedTo(ChronoUnit.SECONDS));
+        final String aggregationKey = objectKey + "/" + type + "/" + reason + "/" + message;
+        final RecordedEvent previous = recordedEvents.get(aggregationKey);
+
+        final Event event;
+        if (previous != null && now - previous.lastTimestamp < AGGREGATION_WINDOW_MS) {
+            event = new EventBuilder(previous.event)
+                .withCount(previous.event.getCount() + 1)
+                .withLastTimestamp(timestamp)
+                .build();
+        } else {
+            event = new EventBuilder()
+                .withNewMetadata()
+                .withName(involvedObject.getMetadata().getName() + "." + Long.toHexString(System.nanoTime()))
+                .withNamespace(involvedObject.getMetadata().getNamespace())
+                .endMetadata()
+                .withInvolvedObject(new ObjectReferenceBuilder()
+                    .withApiVersion(involvedObject.getApiVersion())
+                    .withKind(involvedObject.getKind())
+                    .withName(involvedObject.getMetadata().getName())
+                    .withNamespace(involvedObject.getMetadata().getNamespace())
+                    .withUid(involvedObject.getMetadata().getUid())
+                    .build())
+                .withType(type)
+                .withReason(reason)
+                .withMessage(message)
+                .withCount(1)
+                .withFirstTimestamp(timestamp)
+                .withLastTimestamp(timestamp)
+                .withNewSource().withComponent(Constants.FLINK_NATIVE_K8S_OPERATOR_NAME).endSource()
+                .build();
+        }
+        recordedEvents.put(aggregationKey, new RecordedEvent(event, now));
+        executorService.execute(() -> send(event));
+    }
+
+    private void send(Event event) {
+        try {
+            kubernetesClient.events().inNamespace(event.getMetadata().getNamespace()).createOrReplace(event);
+        } catch (Exception e) {
+            LOG.warn("Failed to record event {} for {}", event.getReason(), event.getInvolvedObject().getName(), e);
+        }
+    }
+
+    private static class RecordedEvent {
+        private final Event event;
+        private final long lastTimestamp;
+
+        private RecordedEvent(Event event, long lastTimestamp) {
+            this.event = event;
+            this.lastTimestamp = lastTimestamp;
+        }
+    }
+
+    private static class LruMap<K, V> extends LinkedHashMap<K, V> {
+        private final int maxSize;
+
+        private LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -1,216 +1,1222 @@
 package org.apache.flink.kubernetes.operator.controller;
 
-import java.util.concurrent.atomic.AtomicReference;
+import org.apache.flink.kubernetes.operator.Utils.ArtifactCache;
 import org.apache.flink.kubernetes.operator.Utils.Constants;
 import org.apache.flink.kubernetes.operator.Utils.FlinkUtils;
 import org.apache.flink.kubernetes.operator.Utils.KubernetesUtils;
+import org.apache.flink.kubernetes.operator.Utils.TracingUtils;
 import org.apache.flink.kubernetes.operator.crd.DoneableFlinkApplication;
 import org.apache.flink.kubernetes.operator.crd.FlinkApplication;
 import org.apache.flink.kubernetes.operator.crd.FlinkApplicationList;
+import org.apache.flink.kubernetes.operator.crd.status.Condition;
 import org.apache.flink.kubernetes.operator.crd.status.FlinkApplicationStatus;
 import org.apache.flink.kubernetes.operator.crd.status.JobStatus;
+import org.apache.flink.kubernetes.operator.crd.status.JobSummary;
+import org.apache.flink.kubernetes.operator.crd.status.UpgradePhase;
 import io.fabric8.kubernetes.api.model.apps.Deployment;
 import io.fabric8.kubernetes.api.model.extensions.HTTPIngressRuleValueBuilder;
 import io.fabric8.kubernetes.api.model.extensions.Ingress;
 import io.fabric8.kubernetes.api.model.extensions.IngressBuilder;
 import io.fabric8.kubernetes.api.model.extensions.IngressRule;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 import io.fabric8.kubernetes.client.informers.cache.Cache;
-import io.fabric8.kubernetes.client.informers.cache.Lister;
 
-import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.api.common.JobID;
 import org.apache.flink.client.cli.ApplicationDeployer;
+import org.apache.flink.client.deployment.ClusterClientFactory;
 import org.apache.flink.client.deployment.ClusterClientServiceLoader;
+import org.apache.flink.client.deployment.ClusterDescriptor;
 import org.apache.flink.client.deployment.DefaultClusterClientServiceLoader;
 import org.apache.flink.client.deployment.application.ApplicationConfiguration;
 import org.apache.flink.client.deployment.application.cli.ApplicationClusterDeployer;
 import org.apache.flink.client.program.ClusterClient;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.PipelineOptions;
 import org.apache.flink.configuration.RestOptions;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.kubernetes.configuration.KubernetesConfigOptions;
 import org.apache.flink.runtime.client.JobStatusMessage;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.SavepointConfigOptions;
+import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.StringUtils;
+import org.apache.flink.util.function.SupplierWithException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 
+import java.io.File;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class FlinkApplicationController {
     // https://developers.redhat.com/blog/2019/10/07/write-a-simple-kubernetes-operator-in-java-using-the-fabric8-kubernetes-client/
     private static final Logger LOG = LoggerFactory.getLogger(FlinkApplicationController.class);
     private static final int RECONCILE_INTERVAL_MS = 60 * 1000;
+    private static final int CLEANUP_PARALLELISM = 8;
+    private static final long FINAL_SAVEPOINT_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final int MAX_FINAL_SAVEPOINT_ATTEMPTS = 5;
+    private static final long SAVEPOINT_CLEANUP_INTERVAL_MS = 10 * 60 * 1000;
+    private static final int SAVEPOINT_CLEANUP_PARALLELISM = 4;
+    private static final double SAVEPOINT_DISPOSALS_PER_SECOND = 10;
+    private static final long DEPLOYMENT_DELETION_TIMEOUT_MS = 5 * 60 * 1000;
+    private static final long DEPLOYMENT_POLL_INTERVAL_MS = 1000;
+    private static final long RETRY_INITIAL_DELAY_MS = 5 * 1000;
+    private static final long RETRY_MAX_DELAY_MS = 5 * 60 * 1000;
+    private static final long INFORMER_SYNC_POLL_MS = 100;
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 3;
+    private static final long CIRCUIT_INITIAL_OPEN_INTERVAL_MS = 10 * 1000;
+    private static final long CIRCUIT_MAX_OPEN_INTERVAL_MS = 10 * 60 * 1000;
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    private static final int JOB_GRAPH_PARALLELISM = 2;
+    private static final long JOB_GRAPH_TIMEOUT_MS = 2 * 60 * 1000;
 
     private final KubernetesClient kubernetesClient;
     private final MixedOperation<FlinkApplication, FlinkApplicationList, DoneableFlinkApplication, Resource<FlinkApplication, DoneableFlinkApplication>> flinkAppK8sClient;
     private final SharedIndexInformer<FlinkApplication> flinkAppInformer;
-    private final Lister<FlinkApplication> flinkClusterLister;
 
-    private final BlockingQueue<String> workqueue;
-    private final Map<String, Tuple2<FlinkApplication, Configuration>> flinkApps;
+    private final PriorityWorkQueue workqueue;
+    // Applications are keyed by namespace/name, the same key as in the informer cache and the work queue
+    private final Map<String, TrackedApplication> flinkApps;
     private final Map<String, String> savepointLocation;
+    private final Map<String, ClusterClient<String>> clusterClients;
+    private final Map<String, CircuitBreaker> circuitBreakers;
+    private final Map<String, JobID> sessionJobIds;
+    private final Set<String> deletionsInProgress;
+    private final Map<String, Integer> retryCounts;
+    private final Map<String, Integer> finalSavepointAttempts;
+
+    private final EventRecorder eventRecorder;
+    private final ArtifactCache artifactCache;
+    private final ControllerMetrics controllerMetrics;
+    private final AtomicLong reconcileIdGenerator = new AtomicLong();
 
     private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ExecutorService cleanupExecutorService = Executors.newFixedThreadPool(CLEANUP_PARALLELISM);
+    private final ScheduledExecutorService savepointCleanupService = Executors.newSingleThreadScheduledExecutor();
+    private final ScheduledExecutorService retryService = Executors.newSingleThreadScheduledExecutor();
+    // All writes of FlinkApplications go through one thread, so that updates of the same CR are never interleaved
+    private final ExecutorService flinkAppUpdateService = Executors.newSingleThreadExecutor();
+    // Runs the main methods of session mode jobs, so that a hanging user program cannot block the control loop
+    private final ExecutorService jobGraphService = Executors.newFixedThreadPool(JOB_GRAPH_PARALLELISM);
+    private final SavepointCleaner savepointCleaner =
+        new SavepointCleaner(SAVEPOINT_CLEANUP_PARALLELISM, SAVEPOINT_DISPOSALS_PER_SECOND);
 
     private final String operatorNamespace;
+    // Kubeconfig context of the managed cluster, or null for the default cluster
+    private final String kubeContext;
+
+    private volatile boolean running = true;
+    private volatile Thread controllerThread;
 
     public FlinkApplicationController(
             KubernetesClient kubernetesClient,
             MixedOperation<FlinkApplication, FlinkApplicationList, DoneableFlinkApplication, Resource<FlinkApplication, DoneableFlinkApplication>> flinkAppK8sClient,
             SharedIndexInformer<FlinkApplication> flinkAppInformer,
-            String namespace) {
+            ArtifactCache artifactCache,
+            String namespace,
+            String kubeContext) {
         this.kubernetesClient = kubernetesClient;
         this.flinkAppK8sClient = flinkAppK8sClient;
-        this.flinkClusterLister = new Lister<>(flinkAppInformer.getIndexer(), namespace);
         this.flinkAppInformer = flinkAppInformer;
         this.operatorNamespace = namespace;
+        this.kubeContext = kubeContext;
 
-        this.workqueue = new ArrayBlockingQueue<>(1024);
+        this.workqueue = new PriorityWorkQueue();
         this.flinkApps = new ConcurrentHashMap<>();
-        this.savepointLocation = new HashMap<>();
+        this.savepointLocation = new ConcurrentHashMap<>();
+        this.clusterClients = new ConcurrentHashMap<>();
+        this.circuitBreakers = new ConcurrentHashMap<>();
+        this.sessionJobIds = new ConcurrentHashMap<>();
+        this.deletionsInProgress = ConcurrentHashMap.newKeySet();
+        this.retryCounts = new ConcurrentHashMap<>();
+        this.finalSavepointAttempts = new ConcurrentHashMap<>();
+        this.eventRecorder = new EventRecorder(kubernetesClient);
+        this.artifactCache = artifactCache;
+        this.controllerMetrics = new ControllerMetrics(kubeContext, circuitBreakers.values());
     }
 
     public void create() {
         flinkAppInformer.addEventHandler(new ResourceEventHandler<FlinkApplication>() {
             @Override
             public void onAdd(FlinkApplication flinkApplication) {
-                addToWorkQueue(flinkApplication);
+                addToWorkQueue(flinkApplication, getPriority(flinkApplication));
             }
 
             @Override
             public void onUpdate(FlinkApplication flinkApplication, FlinkApplication newFlinkApplication) {
-                addToWorkQueue(newFlinkApplication);
+                if (Objects.equals(
+                    flinkApplication.getMetadata().getResourceVersion(), newFlinkApplication.getMetadata().getResourceVersion())) {
+                    // Periodic resync of an unchanged object
+                    addToWorkQueue(newFlinkApplication, PriorityWorkQueue.Priority.LOW);
+                } else {
+                    addToWorkQueue(newFlinkApplication, getPriority(newFlinkApplication));
+                }
             }
 
             @Override
             public void onDelete(FlinkApplication flinkApplication, boolean b) {
-                final String clusterId = flinkApplication.getMetadata().getName();
-                final String namespace = flinkApplication.getMetadata().getNamespace();
-                LOG.info("{} is deleted, destroying flink resources", clusterId);
-                kubernetesClient
-                    .apps()
-                    .deployments()
-                    .inNamespace(namespace)
-                    .withName(clusterId)
-                    .cascading(true)
-                    .delete();
-                flinkApps.remove(clusterId);
+                // Resources are normally released by the finalizer before the CR is gone. Applications deleted before
+                // the finalizer was added are cleaned up here, but never on the informer thread.
+                if (flinkApps.containsKey(Cache.metaNamespaceKeyFunc(flinkApplication))) {
+                    LOG.info("{} is deleted without finalizer, destroying flink resources", flinkApplication.getMetadata().getName());
+                    cleanupExecutorService.submit(() -> deleteFlinkResources(flinkApplication));
+                }
             }
         });
     }
 
+    /**
+     * Runs the control loop on the calling thread until {@link #stop()} is called.
+     */
     public void run() {
         LOG.info("Starting FlinkApplication controller");
+        controllerThread = Thread.currentThread();
         executorService.submit(new JobStatusUpdater());
+        controllerMetrics.start();
+        savepointCleanupService.scheduleWithFixedDelay(
+            this::cleanupSavepoints, SAVEPOINT_CLEANUP_INTERVAL_MS, SAVEPOINT_CLEANUP_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
-        while (true) {
+        boolean stateRecovered = false;
+        while (running) {
             if (!flinkAppInformer.hasSynced()) {
+                // The cluster may be unreachable for a while, do not spin
+                try {
+                    Thread.sleep(INFORMER_SYNC_POLL_MS);
+                } catch (InterruptedException e) {
+                    LOG.error("Controller interrupted");
+                    return;
+                }
                 continue;
             }
+            if (!stateRecovered) {
+                recoverFromInformerCache();
+                stateRecovered = true;
+            }
+            String item = null;
             try {
-                LOG.info("Trying to get item from work queue");
-                if (workqueue.isEmpty()) {
-                    LOG.info("Work queue is empty");
-                }
-                String item = workqueue.take();
+                LOG.debug("Trying to get item from work queue");
+                final PriorityWorkQueue.Item workItem = workqueue.take();
+                controllerMetrics.recordQueueLatency(workItem.getPriority(), workItem.getQueueTimeMillis());
+                item = workItem.getKey();
                 if (item.isEmpty() || (!item.contains("/"))) {
                     LOG.warn("Ignoring invalid resource item: {}", item);
+                    continue;
                 }
 
-                // Get the FlinkApplication resource's name from key which is in format namespace/name
-                String name = item.split("/")[1];
-                FlinkApplication flinkApplication = flinkClusterLister.get(item.split("/")[1]);
-                if (flinkApplication == null) {
-                    LOG.error("FlinkApplication {} in work queue no longer exists", name);
+                // Get the FlinkApplication resource from key which is in format namespace/name
+                final String[] namespaceAndName = item.split("/");
+                putLoggingContext(namespaceAndName[0], namespaceAndName[1]);
+                MDC.put("reconcileId", String.valueOf(reconcileIdGenerator.incrementAndGet()));
+                final FlinkApplication cachedFlinkApp = flinkAppInformer.getIndexer().getByKey(item);
+                if (cachedFlinkApp == null) {
+                    LOG.error("FlinkApplication {} in work queue no longer exists", item);
                     continue;
                 }
-                LOG.info("Reconciling " + flinkApplication);
-                reconcile(flinkApplication);
-
+                // Reconcile only reads the cached object, its updates are applied to copies of the latest version
+                LOG.debug("Reconciling {}", cachedFlinkApp);
+                controllerMetrics.recordReconcile();
+                TracingUtils.run("reconcile", () -> reconcile(cachedFlinkApp));
             } catch (InterruptedException interruptedException) {
+                if (!running) {
+                    break;
+                }
                 LOG.error("Controller interrupted");
+            } catch (Exception e) {
+                // Never let a single application stop the control loop
+                LOG.error("Failed to reconcile", e);
+                controllerMetrics.recordError();
+                if (item != null) {
+                    scheduleRetry(item);
+                }
+            } finally {
+                MDC.clear();
             }
         }
     }
 
+    /**
+     * Stops the control loop and the background tasks of the controller. Work in flight is abandoned, it is picked up
+     * again from the status of the CRs when a controller is started.
+     */
+    public void stop() {
+        LOG.info("Stopping FlinkApplication controller");
+        running = false;
+        final Thread thread = controllerThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        executorService.shutdownNow();
+        cleanupExecutorService.shutdownNow();
+        savepointCleanupService.shutdownNow();
+        retryService.shutdownNow();
+        flinkAppUpdateService.shutdownNow();
+        jobGraphService.shutdownNow();
+        savepointCleaner.close();
+        controllerMetrics.stop();
+        clusterClients.values().forEach(ClusterClient::close);
+        clusterClients.clear();
+    }
+
     /**
      * Tries to achieve the desired state for flink cluster.
      *
      * @param flinkApp specified flink cluster
      */
-    private void reconcile(FlinkApplication flinkApp) {
+    private void reconcile(FlinkApplication flinkApp) throws Exception {
         final String namespace = flinkApp.getMetadata().getNamespace();
         final String clusterId = flinkApp.getMetadata().getName();
-        final Deployment deployment = kubernetesClient.apps().deployments().inNamespace(namespace).withName(clusterId).get();
+        final String key = Cache.metaNamespaceKeyFunc(flinkApp);
+        if (flinkApp.getMetadata().getDeletionTimestamp() != null) {
+            if (hasFinalizer(flinkApp) && deletionsInProgress.add(key)) {
+                TracingUtils.setAction("delete");
+                LOG.info("{} is being deleted, destroying flink resources", clusterId);
+                cleanupExecutorService.submit(() -> finalizeDeletion(flinkApp));
+            }
+            return;
+        }
+        if (!hasFinalizer(flinkApp)) {
+            addFinalizer(flinkApp);
+        }
+        if (isUnchanged(flinkApp)) {
+            // Nothing changed since the last observed spec, e.g. a periodic resync or a status update
+            TracingUtils.setAction("none");
+            return;
+        }
+        final Deployment deployment = TracingUtils.call(
+            "k8s.getDeployment", () -> kubernetesClient.apps().deployments().inNamespace(namespace).withName(clusterId).get());
 
         final Configuration effectiveConfig;
         try {
-            effectiveConfig = FlinkUtils.getEffectiveConfig(namespace, clusterId, flinkApp.getSpec());
+            effectiveConfig = FlinkUtils.getEffectiveConfig(kubeContext, namespace, clusterId, flinkApp.getSpec());
         } catch (Exception e) {
             LOG.error("Failed to load configuration", e);
+            controllerMetrics.recordError();
+            eventRecorder.warning(flinkApp, "InvalidConfiguration", "Failed to load configuration: " + KubernetesUtils.getRootCauseMessage(e));
+            return;
+        }
+
+        final TrackedApplication observedApp = flinkApps.get(key);
+        if (observedApp != null && !observedApp.getMode().equals(FlinkUtils.getMode(flinkApp.getSpec()))) {
+            TracingUtils.setAction("switchMode");
+            switchMode(observedApp, flinkApp);
+            return;
+        }
+
+        if (FlinkUtils.isSessionMode(flinkApp.getSpec())) {
+            TracingUtils.setAction("sessionJob");
+            reconcileSessionJob(flinkApp, effectiveConfig);
             return;
         }
 
         // Create new Flink application
-        if (!flinkApps.containsKey(clusterId) && deployment == null) {
+        if (!flinkApps.containsKey(key) && deployment == null) {
+            TracingUtils.setAction("deploy");
+            resumeInterruptedUpgrade(flinkApp, effectiveConfig);
             // Deploy application
-            final ClusterClientServiceLoader clusterClientServiceLoader = new DefaultClusterClientServiceLoader();
-            final ApplicationDeployer deployer = new ApplicationClusterDeployer(clusterClientServiceLoader);
-
-            final ApplicationConfiguration applicationConfiguration =
-                new ApplicationConfiguration(flinkApp.getSpec().getMainArgs(), flinkApp.getSpec().getEntryClass());
+            Exception deployFailure = null;
             try {
-                deployer.run(effectiveConfig, applicationConfiguration);
+                deployApplicationCluster(flinkApp, effectiveConfig);
+                retryCounts.remove(key);
+                eventRecorder.normal(flinkApp, "Deployed", "Deployed Flink cluster " + clusterId);
             } catch (Exception e) {
                 LOG.error("Failed to deploy cluster {}", clusterId, e);
+                controllerMetrics.recordError();
+                deployFailure = e;
+                eventRecorder.warning(flinkApp, "DeployFailed", "Failed to deploy Flink cluster: " + KubernetesUtils.getRootCauseMessage(e));
             }
 
-            flinkApps.put(clusterId, new Tuple2<>(flinkApp, effectiveConfig));
+            flinkApps.put(key, TrackedApplication.of(flinkApp, effectiveConfig));
 
             updateIngress();
+            final Exception failure = deployFailure;
+            persistObservedState(flinkApp, failure == null ? UpgradePhase.DEPLOYED : UpgradePhase.FAILED,
+                status -> {
+                    if (failure == null) {
+                        setCondition(status, Condition.DEPLOYED, true, "Deployed", null);
+                    } else {
+                        setCondition(status, Condition.DEPLOYED, false, "DeployFailed", KubernetesUtils.getRootCauseMessage(failure));
+                    }
+                });
         } else {
-            if (!flinkApps.containsKey(clusterId)) {
+            if (!flinkApps.containsKey(key)) {
+                // Fall through so that spec changes made while the operator was down are still applied
                 LOG.info("Recovering {}", clusterId);
-                flinkApps.put(clusterId, new Tuple2<>(flinkApp, effectiveConfig));
-                return;
+                flinkApps.put(key, recoverFromStatus(flinkApp, effectiveConfig));
             }
             // Flink app is deleted externally
             if (deployment == null) {
                 LOG.warn("{} is delete externally.", clusterId);
-                flinkApps.remove(clusterId);
+                flinkApps.remove(key);
+                final FlinkApplicationStatus status = flinkApp.getStatus();
+                if (status != null && status.getUpgradePhase() == UpgradePhase.FAILED) {
+                    // E.g. the cluster was deleted by a failed upgrade, redeploy it without waiting for the next event
+                    scheduleRetry(key);
+                }
                 return;
             }
 
-            FlinkApplication oldFlinkApp = flinkApps.get(clusterId).f0;
+            final TrackedApplication trackedApp = flinkApps.get(key);
+            if (FlinkUtils.computeSpecHash(flinkApp.getSpec()).equals(trackedApp.getSpecHash())) {
+                // Nothing changed since the last observed spec, e.g. a periodic resync or a status update
+                TracingUtils.setAction("none");
+                return;
+            }
 
+            TracingUtils.setAction("update");
             // Trigger a new savepoint
-            triggerSavepoint(oldFlinkApp, flinkApp, effectiveConfig);
+            boolean succeeded = triggerSavepoint(trackedApp, flinkApp, effectiveConfig);
 
             // TODO support more fields updating, e.g. image, resources
             // Task 1: support dual mode: image updating
-            triggerImageUpdate(oldFlinkApp, flinkApp, effectiveConfig);
+            succeeded &= triggerImageUpdate(trackedApp, flinkApp, effectiveConfig);
+
+            // Only advance the observed state on success, so that failed actions are retried
+            if (succeeded) {
+                retryCounts.remove(key);
+                flinkApps.put(key, TrackedApplication.of(flinkApp, effectiveConfig));
+                persistObservedState(flinkApp, UpgradePhase.DEPLOYED);
+            } else {
+                scheduleRetry(key);
+            }
         }
     }
 
-    private void updateIngress() {
-        final List<IngressRule> ingressRules = new ArrayList<>();
-        for (Tuple2<FlinkApplication, Configuration> entry : flinkApps.values()) {
-            final FlinkApplication flinkApp = entry.f0;
+    /**
+     * Whether the application is tracked and its spec is the last observed one, so that reconcile has nothing to do
+     * and need not read the cluster. The deployment is only checked again while the JobManager is unreachable, which
+     * is how a cluster deleted externally shows up.
+     */
+    private boolean isUnchanged(FlinkApplication flinkApp) {
+        final TrackedApplication trackedApp = flinkApps.get(Cache.metaNamespaceKeyFunc(flinkApp));
+        if (trackedApp == null
+            || !trackedApp.getMode().equals(FlinkUtils.getMode(flinkApp.getSpec()))
+            || !FlinkUtils.computeSpecHash(flinkApp.getSpec()).equals(trackedApp.getSpecHash())) {
+            return false;
+        }
+        final FlinkApplicationStatus status = flinkApp.getStatus();
+        return status == null || status.getConditions() == null || Arrays.stream(status.getConditions())
+            .noneMatch(condition -> Condition.READY.equals(condition.getType())
+                && Condition.STATUS_FALSE.equals(condition.getStatus())
+                && "JobManagerUnreachable".equals(condition.getReason()));
+    }
+
+    /**
+     * Restores from the state recorded by an upgrade or mode switch that stopped the job but did not start it again,
+     * e.g. because the operator restarted or the deployment failed.
+     */
+    private void resumeInterruptedUpgrade(FlinkApplication flinkApp, Configuration effectiveConfig) {
+        final FlinkApplicationStatus lastStatus = flinkApp.getStatus();
+        if (lastStatus != null
+            && lastStatus.getLastSavepoint() != null
+            && (lastStatus.getUpgradePhase() == UpgradePhase.UPGRADING || lastStatus.getUpgradePhase() == UpgradePhase.FAILED)
+            && !Constants.UPGRADE_MODE_STATELESS.equals(FlinkUtils.getUpgradeMode(flinkApp.getSpec()))) {
+            LOG.info("Resuming the upgrade of {} from {}", flinkApp.getMetadata().getName(), lastStatus.getLastSavepoint());
+            effectiveConfig.setString(SavepointConfigOptions.SAVEPOINT_PATH, lastStatus.getLastSavepoint());
+            effectiveConfig.set(
+                SavepointConfigOptions.SAVEPOINT_IGNORE_UNCLAIMED_STATE, flinkApp.getSpec().isAllowNonRestoredState());
+        }
+    }
+
+    /**
+     * Moves an application between application and session mode. The job is stopped according to the upgrade mode
+     * and the resources of the old mode are released. The application is then requeued, so that the next reconcile
+     * deploys it in the new mode and restores it from the recorded state.
+     */
+    private void switchMode(TrackedApplication trackedApp, FlinkApplication flinkApp) {
+        final String key = trackedApp.getKey();
+        final String newMode = FlinkUtils.getMode(flinkApp.getSpec());
+        final String upgradeMode = FlinkUtils.getUpgradeMode(flinkApp.getSpec());
+        LOG.info("Switching {} from {} to {} mode", trackedApp.getName(), trackedApp.getMode(), newMode);
+        eventRecorder.normal(flinkApp, "ModeSwitchStarted", "Switching from " + trackedApp.getMode() + " to " + newMode + " mode");
+        final Configuration oldConfig = trackedApp.getEffectiveConfig();
+        try {
+            final String namespace = flinkApp.getMetadata().getNamespace();
+            // The application cluster may already be gone if a previous attempt was interrupted
+            final boolean clusterExists = trackedApp.isSessionMode() || TracingUtils.call("k8s.getDeployment",
+                () -> kubernetesClient.apps().deployments().inNamespace(namespace).withName(trackedApp.getClusterId()).get()) != null;
+            final String restorePath = clusterExists
+                ? stopJobsForUpgrade(flinkApp, oldConfig, upgradeMode)
+                : getRecordedSavepoint(flinkApp, upgradeMode);
+            if (restorePath != null) {
+                // Recorded before the old resources are released, so that the switch resumes from it after a failure
+                updateStatus(flinkApp, status -> {
+                    status.setLastSavepoint(restorePath);
+                    return true;
+                });
+            }
+
+            if (trackedApp.isSessionMode()) {
+                // The session cluster is shared and kept
+                sessionJobIds.remove(key);
+            } else {
+                closeClusterClient(getClusterKey(oldConfig));
+                TracingUtils.run("k8s.deleteDeployment", () -> kubernetesClient
+                    .apps()
+                    .deployments()
+                    .inNamespace(namespace)
+                    .withName(trackedApp.getClusterId())
+                    .cascading(true)
+                    .delete());
+                artifactCache.unpin(getArtifactOwner(key));
+            }
+            flinkApps.remove(key);
+            updateIngress();
+
+            updateStatus(flinkApp, status -> {
+                // The job of the old mode is done, the new mode starts a new job
+                final JobStatus currentJob = status.getCurrentJob();
+                if (currentJob != null) {
+                    final List<JobSummary> jobHistory = new ArrayList<>();
+                    jobHistory.add(new JobSummary(currentJob.getJobId(), currentJob.getState(), currentJob.getLastTransitionTime()));
+                    if (status.getJobHistory() != null) {
+                        jobHistory.addAll(Arrays.asList(status.getJobHistory()));
+                    }
+                    status.setJobHistory(jobHistory.stream()
+                        .limit(FlinkApplicationStatus.MAX_JOB_HISTORY_SIZE)
+                        .toArray(JobSummary[]::new));
+                    status.setCurrentJob(null);
+                }
+                status.setUpgradePhase(UpgradePhase.UPGRADING);
+                return true;
+            });
+            workqueue.add(key, PriorityWorkQueue.Priority.HIGH);
+        } catch (Exception e) {
+            LOG.warn("Failed to switch {} to {} mode", trackedApp.getName(), newMode, e);
+            controllerMetrics.recordError();
+            eventRecorder.warning(flinkApp, "ModeSwitchFailed",
+                "Failed to switch to " + newMode + " mode: " + KubernetesUtils.getRootCauseMessage(e));
+            scheduleRetry(key);
+        }
+    }
+
+    private void deployApplicationCluster(FlinkApplication flinkApp, Configuration effectiveConfig) throws Exception {
+        final ClusterClientServiceLoader clusterClientServiceLoader = new DefaultClusterClientServiceLoader();
+        final ApplicationDeployer deployer = new ApplicationClusterDeployer(clusterClientServiceLoader);
+
+        final ApplicationConfiguration applicationConfiguration =
+            new ApplicationConfiguration(flinkApp.getSpec().getMainArgs(), flinkApp.getSpec().getEntryClass());
+        resolveJars(flinkApp, effectiveConfig);
+        TracingUtils.run("flink.deployApplicationCluster", () -> deployer.run(effectiveConfig, applicationConfiguration));
+    }
+
+    /**
+     * Reconciles a job of a shared session cluster. The session cluster is deployed once and every job is submitted
+     * to it through the REST API, which takes seconds instead of starting a new cluster.
+     */
+    private void reconcileSessionJob(FlinkApplication flinkApp, Configuration effectiveConfig) throws Exception {
+        final String namespace = flinkApp.getMetadata().getNamespace();
+        final String clusterId = flinkApp.getMetadata().getName();
+        final String key = Cache.metaNamespaceKeyFunc(flinkApp);
+        final String sessionClusterId = effectiveConfig.get(KubernetesConfigOptions.CLUSTER_ID);
+
+        if (!flinkApps.containsKey(key)) {
+            final FlinkApplicationStatus lastStatus = flinkApp.getStatus();
+            if (lastStatus != null
+                && lastStatus.getLastObservedSpecHash() != null
+                && lastStatus.getCurrentJob() != null
+                && !Constants.MODE_APPLICATION.equals(lastStatus.getObservedMode())) {
+                LOG.info("Recovering {}", clusterId);
+                flinkApps.put(key, recoverFromStatus(flinkApp, effectiveConfig));
+            } else {
+                resumeInterruptedUpgrade(flinkApp, effectiveConfig);
+                final JobID jobId;
+                try {
+                    ensureSessionCluster(namespace, sessionClusterId, effectiveConfig);
+                    jobId = submitSessionJob(flinkApp, effectiveConfig);
+                } catch (Exception e) {
+                    LOG.error("Failed to submit {} to session cluster {}", clusterId, sessionClusterId, e);
+                    controllerMetrics.recordError();
+                    eventRecorder.warning(flinkApp, "DeployFailed",
+                        "Failed to submit job to session cluster: " + KubernetesUtils.getRootCauseMessage(e));
+                    // The application is not tracked and its observed spec is not recorded, so the retry submits again
+                    updateStatus(flinkApp, status -> {
+                        setCondition(status, Condition.DEPLOYED, false, "DeployFailed", KubernetesUtils.getRootCauseMessage(e));
+                        status.setUpgradePhase(UpgradePhase.FAILED);
+                        return true;
+                    });
+                    scheduleRetry(key);
+                    return;
+                }
+                sessionJobIds.put(key, jobId);
+                retryCounts.remove(key);
+                eventRecorder.normal(flinkApp, "Deployed", "Submitted job " + jobId + " to session cluster " + sessionClusterId);
+
+                flinkApps.put(key, TrackedApplication.of(flinkApp, effectiveConfig));
+
+                updateIngress();
+                persistObservedState(flinkApp, UpgradePhase.DEPLOYED, status -> {
+                    // Record the job right away, so that it is not submitted twice if the operator restarts
+                    setCondition(status, Condition.READY, false, "JobSubmitted", null);
+                    status.setCurrentJob(new JobStatus(
+                        null,
+                        jobId.toString(),
+                        org.apache.flink.api.common.JobStatus.INITIALIZING.name(),
+                        System.currentTimeMillis()));
+                    setCondition(status, Condition.DEPLOYED, true, "Deployed", null);
+                });
+                return;
+            }
+        }
+
+        final TrackedApplication trackedApp = flinkApps.get(key);
+        if (FlinkUtils.computeSpecHash(flinkApp.getSpec()).equals(trackedApp.getSpecHash())) {
+            return;
+        }
+
+        // Only savepoints are supported for jobs on a session cluster, the image belongs to the session cluster
+        if (triggerSavepoint(trackedApp, flinkApp, effectiveConfig)) {
+            retryCounts.remove(key);
+            flinkApps.put(key, TrackedApplication.of(flinkApp, effectiveConfig));
+            persistObservedState(flinkApp, UpgradePhase.DEPLOYED);
+        } else {
+            scheduleRetry(key);
+        }
+    }
+
+    private void ensureSessionCluster(String namespace, String sessionClusterId, Configuration effectiveConfig) throws Exception {
+        final Deployment sessionDeployment = TracingUtils.call(
+            "k8s.getDeployment", () -> kubernetesClient.apps().deployments().inNamespace(namespace).withName(sessionClusterId).get());
+        if (sessionDeployment != null) {
+            return;
+        }
+        LOG.info("Deploying session cluster {}", sessionClusterId);
+        final ClusterClientServiceLoader clusterClientServiceLoader = new DefaultClusterClientServiceLoader();
+        final ClusterClientFactory<String> clusterClientFactory = clusterClientServiceLoader.getClusterClientFactory(effectiveConfig);
+        try (ClusterDescriptor<String> clusterDescriptor = clusterClientFactory.createClusterDescriptor(effectiveConfig)) {
+            TracingUtils.run("flink.deploySessionCluster",
+                () -> clusterDescriptor.deploySessionCluster(clusterClientFactory.getClusterSpecification(effectiveConfig)));
+        }
+    }
+
+    private JobID submitSessionJob(FlinkApplication flinkApp, Configuration effectiveConfig) throws Exception {
+        // The jar is uploaded to the session cluster from the local artifact cache
+        final File jarFile = TracingUtils.call(
+            "artifactCache.resolve", () -> artifactCache.resolve(flinkApp.getSpec().getJarURI(), flinkApp.getSpec().getJarChecksum()));
+        final JobGraph jobGraph = createJobGraph(flinkApp, effectiveConfig, jarFile);
+        return TracingUtils.call("flink.submitJob", () -> getClusterClient(effectiveConfig).submitJob(jobGraph).get());
+    }
+
+    /**
+     * Builds the job graph on the job graph pool. A user program that does not build its job graph in time is
+     * interrupted, a thread it does not release stays busy and only reduces the parallelism of the pool.
+     */
+    private JobGraph createJobGraph(FlinkApplication flinkApp, Configuration effectiveConfig, File jarFile) throws Exception {
+        final Future<JobGraph> jobGraph =
+            jobGraphService.submit(() -> FlinkUtils.createJobGraph(effectiveConfig, flinkApp.getSpec(), jarFile));
+        try {
+            return jobGraph.get(JOB_GRAPH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            jobGraph.cancel(true);
+            throw new TimeoutException("The main method of " + flinkApp.getSpec().getJarURI()
+                + " did not build the job graph within " + JOB_GRAPH_TIMEOUT_MS + " ms");
+        }
+    }
+
+    /**
+     * Application clusters can only read local jars. If the artifact cache is mounted into the Flink pods, remote jars
+     * are fetched once into the cache and the cluster reads them from there. The jar stays pinned in the cache until
+     * the cluster is deleted.
+     */
+    private void resolveJars(FlinkApplication flinkApp, Configuration effectiveConfig) throws Exception {
+        final String jarURI = flinkApp.getSpec().getJarURI();
+        if (!artifactCache.isShared() || jarURI.startsWith("local://")) {
+            return;
+        }
+        final String owner = getArtifactOwner(Cache.metaNamespaceKeyFunc(flinkApp));
+        final File jarFile = TracingUtils.call(
+            "artifactCache.resolve", () -> artifactCache.resolve(jarURI, flinkApp.getSpec().getJarChecksum(), owner));
+        effectiveConfig.set(PipelineOptions.JARS, Collections.singletonList(artifactCache.toLocalURI(jarFile)));
+    }
+
+    /**
+     * Owner of the cached jar of an application cluster, the artifact cache is shared by the controllers of all
+     * Kubernetes clusters.
+     */
+    private String getArtifactOwner(String key) {
+        return kubeContext == null ? key : kubeContext + "/" + key;
+    }
+
+    /**
+     * Lists the jobs of the Flink application. Jobs on a session cluster are filtered to the job of the application.
+     */
+    private Collection<JobStatusMessage> listJobs(FlinkApplication flinkApp, Configuration effectiveConfig) throws Exception {
+        final Collection<JobStatusMessage> jobs = callJobManager(effectiveConfig, () -> TracingUtils.call(
+            "flink.listJobs", () -> getClusterClient(effectiveConfig).listJobs().get()));
+        return filterSessionJobs(flinkApp, effectiveConfig, jobs);
+    }
+
+    /**
+     * Only the job of the application is relevant on a session cluster.
+     */
+    private Collection<JobStatusMessage> filterSessionJobs(
+            FlinkApplication flinkApp, Configuration effectiveConfig, Collection<JobStatusMessage> jobs) {
+        if (!FlinkUtils.isSessionCluster(effectiveConfig)) {
+            return jobs;
+        }
+        final JobID jobId = sessionJobIds.get(Cache.metaNamespaceKeyFunc(flinkApp));
+        return jobs.stream().filter(job -> job.getJobId().equals(jobId)).collect(Collectors.toList());
+    }
+
+    /**
+     * Rebuilds the working set from the status persisted in the CRs, without querying any JobManager.
+     */
+    private void recoverFromInformerCache() {
+        final long startTime = System.currentTimeMillis();
+        int recovered = 0;
+        for (FlinkApplication flinkApp : flinkAppInformer.getIndexer().list()) {
             final String clusterId = flinkApp.getMetadata().getName();
-            final int restPort = entry.f1.getInteger(RestOptions.PORT);
+            final String key = Cache.metaNamespaceKeyFunc(flinkApp);
+            if (flinkApps.containsKey(key)
+                || flinkApp.getStatus() == null
+                || flinkApp.getStatus().getLastObservedSpecHash() == null) {
+                continue;
+            }
+            try {
+                final Configuration effectiveConfig = FlinkUtils.getEffectiveConfig(
+                    kubeContext,
+                    flinkApp.getMetadata().getNamespace(), clusterId, flinkApp.getSpec());
+                flinkApps.put(key, recoverFromStatus(flinkApp, effectiveConfig));
+                recovered++;
+            } catch (Exception e) {
+                LOG.warn("Failed to recover {} from status", clusterId, e);
+            }
+        }
+        LOG.info("Recovered {} FlinkApplications from informer cache in {} ms",
+            recovered, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Builds the last observed state of the Flink application from its status. It carries the spec hash, image and
+     * savepoint generation the operator last acted on, so that changes made while the operator was down are detected
+     * by the following reconcile.
+     */
+    private TrackedApplication recoverFromStatus(FlinkApplication flinkApp, Configuration effectiveConfig) throws Exception {
+        final String namespace = flinkApp.getMetadata().getNamespace();
+        final String clusterId = flinkApp.getMetadata().getName();
+        final FlinkApplicationStatus status = flinkApp.getStatus();
+        if (status == null || status.getLastObservedSpecHash() == null) {
+            // The observed spec is unknown, the next reconcile records it
+            return new TrackedApplication(
+                namespace,
+                clusterId,
+                null,
+                FlinkUtils.getMode(flinkApp.getSpec()),
+                flinkApp.getSpec().getImageName(),
+                flinkApp.getSpec().getSavepointGeneration(),
+                effectiveConfig);
+        }
+
+        final String observedMode = status.getObservedMode() != null
+            ? status.getObservedMode() : FlinkUtils.getMode(flinkApp.getSpec());
+        Configuration observedConfig = effectiveConfig;
+        if (!observedMode.equals(FlinkUtils.getMode(flinkApp.getSpec()))) {
+            // The mode was changed while the operator was down, the job still runs on the cluster of the observed mode
+            final FlinkApplication observedApp = KubernetesUtils.clone(flinkApp);
+            observedApp.getSpec().setMode(observedMode);
+            observedConfig = FlinkUtils.getEffectiveConfig(kubeContext, namespace, clusterId, observedApp.getSpec());
+        }
+
+        final String jarChecksum = flinkApp.getSpec().getJarChecksum();
+        if (Constants.MODE_APPLICATION.equals(observedMode)
+            && artifactCache.isShared()
+            && !StringUtils.isNullOrWhitespaceOnly(jarChecksum)) {
+            // The running cluster may read its jar from the cache, which is only known by the checksum after a restart
+            artifactCache.pin(getArtifactOwner(Cache.metaNamespaceKeyFunc(flinkApp)), jarChecksum);
+        }
+
+        final JobStatus currentJob = status.getCurrentJob();
+        if (currentJob != null && currentJob.getSavepointLocation() != null) {
+            savepointLocation.put(currentJob.getJobId(), currentJob.getSavepointLocation());
+        }
+        if (currentJob != null && Constants.MODE_SESSION.equals(observedMode)) {
+            sessionJobIds.put(Cache.metaNamespaceKeyFunc(flinkApp), JobID.fromHexString(currentJob.getJobId()));
+        }
+        return new TrackedApplication(
+            namespace,
+            clusterId,
+            status.getLastObservedSpecHash(),
+            observedMode,
+            status.getObservedImageName(),
+            status.getObservedSavepointGeneration(),
+            observedConfig);
+    }
+
+    private void persistObservedState(FlinkApplication flinkApp, UpgradePhase upgradePhase) {
+        persistObservedState(flinkApp, upgradePhase, status -> { });
+    }
+
+    /**
+     * Records the spec the operator has acted on in the CR status. The spec is the one of the given copy, a spec
+     * edited in the meantime is detected by the next reconcile.
+     *
+     * @param update further changes of the status, e.g. conditions, written together with the observed state
+     */
+    private void persistObservedState(
+            FlinkApplication flinkApp,
+            UpgradePhase upgradePhase,
+            Consumer<FlinkApplicationStatus> update) {
+        final String specHash = FlinkUtils.computeSpecHash(flinkApp.getSpec());
+        final String mode = FlinkUtils.getMode(flinkApp.getSpec());
+        final String imageName = flinkApp.getSpec().getImageName();
+        final int savepointGeneration = flinkApp.getSpec().getSavepointGeneration();
+        updateStatus(flinkApp, status -> {
+            update.accept(status);
+            status.setLastObservedSpecHash(specHash);
+            status.setObservedMode(mode);
+            status.setObservedImageName(imageName);
+            status.setObservedSavepointGeneration(savepointGeneration);
+            status.setUpgradePhase(upgradePhase);
+            return true;
+        });
+    }
+
+    /**
+     * Sets the condition of the given type in the status. The transition time is only updated when the condition
+     * status changes.
+     *
+     * @return whether the condition has changed
+     */
+    private static boolean setCondition(FlinkApplicationStatus status, String type, boolean value, String reason, String fullMessage) {
+        final String message = KubernetesUtils.truncateMessage(fullMessage);
+        final String conditionStatus = value ? Condition.STATUS_TRUE : Condition.STATUS_FALSE;
+        final List<Condition> conditions = status.getConditions() == null
+            ? new ArrayList<>() : new ArrayList<>(Arrays.asList(status.getConditions()));
+
+        long lastTransitionTime = System.currentTimeMillis();
+        for (Condition condition : conditions) {
+            if (!type.equals(condition.getType())) {
+                continue;
+            }
+            if (conditionStatus.equals(condition.getStatus())) {
+                if (Objects.equals(reason, condition.getReason()) && Objects.equals(message, condition.getMessage())) {
+                    return false;
+                }
+                lastTransitionTime = condition.getLastTransitionTime();
+            }
+            conditions.remove(condition);
+            break;
+        }
+        conditions.add(new Condition(type, conditionStatus, reason, message, lastTransitionTime));
+        conditions.sort(Comparator.comparing(Condition::getType));
+        status.setConditions(conditions.toArray(new Condition[0]));
+        return true;
+    }
+
+    /**
+     * Disposes the savepoints that are expired by the retention policy of each application. The savepoint to restore
+     * from and the last savepoint of the application are always kept.
+     */
+    private void cleanupSavepoints() {
+        for (TrackedApplication trackedApp : flinkApps.values()) {
+            final FlinkApplication flinkApp = flinkAppInformer.getIndexer().getByKey(trackedApp.getKey());
+            if (flinkApp == null
+                || flinkApp.getMetadata().getDeletionTimestamp() != null
+                || flinkApp.getSpec().getSavepointRetention() == null
+                || StringUtils.isNullOrWhitespaceOnly(flinkApp.getSpec().getSavepointsDir())
+                || flinkApp.getStatus() == null) {
+                continue;
+            }
+            putLoggingContext(flinkApp.getMetadata().getNamespace(), flinkApp.getMetadata().getName());
+            try {
+                final String sharedWith = findAppSharingSavepointsDir(flinkApp);
+                if (sharedWith != null) {
+                    // Savepoints are only matched by a prefix of the job id, which may belong to the other application
+                    LOG.warn("Not disposing savepoints, {} is shared with {}", flinkApp.getSpec().getSavepointsDir(), sharedWith);
+                    continue;
+                }
+                final FlinkApplicationStatus status = flinkApp.getStatus();
+                final Set<String> jobIds = new HashSet<>();
+                final Set<String> protectedSavepoints = new HashSet<>();
+                addSavepointName(protectedSavepoints, flinkApp.getSpec().getFromSavepoint());
+                addSavepointName(protectedSavepoints, status.getLastSavepoint());
+                if (status.getCurrentJob() != null) {
+                    jobIds.add(status.getCurrentJob().getJobId());
+                    addSavepointName(protectedSavepoints, status.getCurrentJob().getSavepointLocation());
+                    addSavepointName(protectedSavepoints, savepointLocation.get(status.getCurrentJob().getJobId()));
+                }
+                if (status.getJobHistory() != null) {
+                    for (JobSummary jobSummary : status.getJobHistory()) {
+                        jobIds.add(jobSummary.getJobId());
+                    }
+                }
+
+                final List<Path> expiredSavepoints = SavepointCleaner.findExpiredSavepoints(
+                    new Path(flinkApp.getSpec().getSavepointsDir()),
+                    jobIds,
+                    flinkApp.getSpec().getSavepointRetention(),
+                    protectedSavepoints,
+                    System.currentTimeMillis());
+                if (!expiredSavepoints.isEmpty()) {
+                    final int disposed = savepointCleaner.dispose(expiredSavepoints);
+                    LOG.info("Disposed {} of {} expired savepoints", disposed, expiredSavepoints.size());
+                    eventRecorder.normal(flinkApp, "SavepointsDisposed", "Disposed " + disposed + " expired savepoints");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOG.warn("Failed to clean up savepoints of {}", flinkApp.getMetadata().getName(), e);
+            } finally {
+                MDC.clear();
+            }
+        }
+    }
+
+    private static void addSavepointName(Set<String> savepointNames, String savepointPath) {
+        if (!StringUtils.isNullOrWhitespaceOnly(savepointPath)) {
+            savepointNames.add(SavepointCleaner.getSavepointName(savepointPath));
+        }
+    }
+
+    /**
+     * Returns the key of another application with the same savepoints directory, or null if there is none.
+     */
+    private String findAppSharingSavepointsDir(FlinkApplication flinkApp) {
+        final Path savepointsDir = new Path(flinkApp.getSpec().getSavepointsDir());
+        final String key = Cache.metaNamespaceKeyFunc(flinkApp);
+        for (FlinkApplication other : flinkAppInformer.getIndexer().list()) {
+            final String otherKey = Cache.metaNamespaceKeyFunc(other);
+            if (!key.equals(otherKey)
+                && !StringUtils.isNullOrWhitespaceOnly(other.getSpec().getSavepointsDir())
+                && savepointsDir.equals(new Path(other.getSpec().getSavepointsDir()))) {
+                return otherKey;
+            }
+        }
+        return null;
+    }
+
+    private void putLoggingContext(String namespace, String name) {
+        if (kubeContext != null) {
+            MDC.put("cluster", kubeContext);
+        }
+        MDC.put("namespace", namespace);
+        MDC.put("app", name);
+    }
+
+    private static boolean hasFinalizer(FlinkApplication flinkApp) {
+        final List<String> finalizers = flinkApp.getMetadata().getFinalizers();
+        return finalizers != null && finalizers.contains(Constants.FINALIZER_NAME);
+    }
+
+    private void addFinalizer(FlinkApplication flinkApp) {
+        updateFlinkApp(flinkApp, latest -> {
+            if (hasFinalizer(latest)) {
+                return false;
+            }
+            final List<String> finalizers = latest.getMetadata().getFinalizers() == null
+                ? new ArrayList<>() : new ArrayList<>(latest.getMetadata().getFinalizers());
+            finalizers.add(Constants.FINALIZER_NAME);
+            latest.getMetadata().setFinalizers(finalizers);
+            return true;
+        });
+    }
+
+    /**
+     * Runs on the cleanup pool. Optionally stops the jobs with a final savepoint, releases all resources of the
+     * application and finally removes the finalizer so that the CR can be deleted.
+     */
+    private void finalizeDeletion(FlinkApplication flinkApp) {
+        final String clusterId = flinkApp.getMetadata().getName();
+        final String key = Cache.metaNamespaceKeyFunc(flinkApp);
+        putLoggingContext(flinkApp.getMetadata().getNamespace(), clusterId);
+        try {
+            TracingUtils.run("finalizeDeletion", () -> {
+                TracingUtils.setAction("delete");
+                if (flinkApp.getSpec().isSavepointOnDeletion() && flinkApps.containsKey(key)) {
+                    try {
+                        takeFinalSavepoint(flinkApp, flinkApps.get(key).getEffectiveConfig());
+                    } catch (Exception e) {
+                        final int attempts = finalSavepointAttempts.merge(key, 1, Integer::sum);
+                        if (attempts < MAX_FINAL_SAVEPOINT_ATTEMPTS) {
+                            // The resources are kept, so that the savepoint is retried
+                            throw e;
+                        }
+                        // Deletion must not be blocked forever by a broken job, the resources are deleted anyway
+                        LOG.warn("Failed to take a final savepoint for {} after {} attempts, deleting it anyway",
+                            clusterId, attempts, e);
+                        eventRecorder.warning(flinkApp, "SavepointFailed",
+                            "Failed to take a final savepoint: " + KubernetesUtils.getRootCauseMessage(e));
+                    }
+                }
+                deleteFlinkResources(flinkApp);
+
+                updateFlinkAppAsync(flinkApp, latest -> {
+                    if (!hasFinalizer(latest)) {
+                        return false;
+                    }
+                    final List<String> finalizers = new ArrayList<>(latest.getMetadata().getFinalizers());
+                    finalizers.remove(Constants.FINALIZER_NAME);
+                    latest.getMetadata().setFinalizers(finalizers);
+                    return true;
+                }).get();
+            });
+            LOG.info("Finalized deletion of {}", clusterId);
+            finalSavepointAttempts.remove(key);
+        } catch (Exception e) {
+            LOG.error("Failed to finalize deletion of {}", clusterId, e);
+            eventRecorder.warning(flinkApp, "DeletionFailed", "Failed to finalize deletion: " + KubernetesUtils.getRootCauseMessage(e));
+            // Retried once the deletion is no longer in progress, the resync may be minutes away
+            scheduleRetry(key);
+        } finally {
+            deletionsInProgress.remove(key);
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Stops the running jobs of the application with a savepoint. The JobManager is called directly, an open circuit
+     * breaker only means that the last calls failed and must not cost the last savepoint of the application.
+     */
+    private void takeFinalSavepoint(FlinkApplication flinkApp, Configuration effectiveConfig) throws Exception {
+        final boolean advanceToEndOfEventTime = flinkApp.getSpec().isDrainFlag();
+        final ClusterClient<String> clusterClient = getClusterClient(effectiveConfig);
+        final Collection<JobStatusMessage> jobs = TracingUtils.call(
+            "flink.listJobs", () -> clusterClient.listJobs().get(FINAL_SAVEPOINT_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        for (JobStatusMessage job : filterSessionJobs(flinkApp, effectiveConfig, jobs)) {
+            if (job.getJobState().isGloballyTerminalState()) {
+                continue;
+            }
+            final String path = TracingUtils.call("flink.stopWithSavepoint", () -> clusterClient
+                .stopWithSavepoint(job.getJobId(), advanceToEndOfEventTime, null)
+                .get(FINAL_SAVEPOINT_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            LOG.info("Stopped job {} with final savepoint {}", job.getJobId(), path);
+            eventRecorder.normal(flinkApp, "SavepointCompleted", "Stopped job " + job.getJobId() + " with savepoint " + path);
+        }
+    }
+
+    private void deleteFlinkResources(FlinkApplication flinkApp) {
+        final String clusterId = flinkApp.getMetadata().getName();
+        final String namespace = flinkApp.getMetadata().getNamespace();
+        final String key = Cache.metaNamespaceKeyFunc(flinkApp);
+        final TrackedApplication trackedApp = flinkApps.get(key);
+        // The mode the application runs in, the spec may already request another one
+        if (trackedApp != null ? trackedApp.isSessionMode() : FlinkUtils.isSessionMode(flinkApp.getSpec())) {
+            // The session cluster is shared, only the job of this application is cancelled
+            cancelSessionJob(flinkApp);
+        } else {
+            kubernetesClient
+                .apps()
+                .deployments()
+                .inNamespace(namespace)
+                .withName(clusterId)
+                .cascading(true)
+                .delete();
+            closeClusterClient(namespace + "/" + clusterId);
+            artifactCache.unpin(getArtifactOwner(key));
+        }
+        flinkApps.remove(key);
+        sessionJobIds.remove(key);
+        retryCounts.remove(key);
+        final FlinkApplicationStatus status = flinkApp.getStatus();
+        if (status != null) {
+            if (status.getCurrentJob() != null) {
+                savepointLocation.remove(status.getCurrentJob().getJobId());
+            }
+            if (status.getJobHistory() != null) {
+                for (JobSummary jobSummary : status.getJobHistory()) {
+                    savepointLocation.remove(jobSummary.getJobId());
+                }
+            }
+        }
+        updateIngress();
+    }
+
+    private void cancelSessionJob(FlinkApplication flinkApp) {
+        final TrackedApplication trackedApp = flinkApps.get(Cache.metaNamespaceKeyFunc(flinkApp));
+        if (trackedApp == null) {
+            return;
+        }
+        try {
+            final Configuration effectiveConfig = trackedApp.getEffectiveConfig();
+            for (JobStatusMessage job : listJobs(flinkApp, effectiveConfig)) {
+                if (!job.getJobState().isGloballyTerminalState()) {
+                    getClusterClient(effectiveConfig).cancel(job.getJobId()).get();
+                    LOG.info("Cancelled job {} on session cluster", job.getJobId());
+                }
+            }
+        } catch (Exception e) {
+            LOG.warn("Failed to cancel the session job of {}", flinkApp.getMetadata().getName(), e);
+        }
+    }
+
+    /**
+     * Calls the JobManager of the cluster through its circuit breaker, failing fast while the breaker is open.
+     */
+    private <T> T callJobManager(Configuration effectiveConfig, SupplierWithException<T, Exception> call) throws Exception {
+        final String clusterKey = getClusterKey(effectiveConfig);
+        final CircuitBreaker circuitBreaker = getCircuitBreaker(clusterKey);
+        if (!circuitBreaker.allowRequest()) {
+            controllerMetrics.recordFastFail();
+            throw new CircuitBreaker.OpenException(clusterKey, circuitBreaker.getMillisUntilProbe());
+        }
+        final CircuitBreaker.State previousState = circuitBreaker.getState();
+        try {
+            final T result = call.get();
+            circuitBreaker.recordSuccess();
+            if (previousState != CircuitBreaker.State.CLOSED) {
+                LOG.info("JobManager of {} is reachable again, closed its circuit breaker", clusterKey);
+            }
+            return result;
+        } catch (Exception e) {
+            circuitBreaker.recordFailure();
+            if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                LOG.warn("Opened the circuit breaker of {} after {} consecutive failures, next probe in {} ms",
+                    clusterKey, circuitBreaker.getConsecutiveFailures(), circuitBreaker.getMillisUntilProbe());
+            }
+            throw e;
+        }
+    }
+
+    private CircuitBreaker getCircuitBreaker(String clusterKey) {
+        return circuitBreakers.computeIfAbsent(clusterKey, key -> new CircuitBreaker(
+            CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_INITIAL_OPEN_INTERVAL_MS, CIRCUIT_MAX_OPEN_INTERVAL_MS));
+    }
+
+    private static String getClusterKey(Configuration effectiveConfig) {
+        return effectiveConfig.get(KubernetesConfigOptions.NAMESPACE)
+            + "/" + effectiveConfig.get(KubernetesConfigOptions.CLUSTER_ID);
+    }
+
+    /**
+     * Returns the cached client of the cluster described by the configuration. Jobs on the same session cluster share
+     * one client.
+     */
+    private ClusterClient<String> getClusterClient(Configuration effectiveConfig) throws Exception {
+        final String clusterKey = getClusterKey(effectiveConfig);
+        ClusterClient<String> clusterClient = clusterClients.get(clusterKey);
+        if (clusterClient == null) {
+            clusterClient = FlinkUtils.getRestClusterClient(effectiveConfig);
+            final ClusterClient<String> existing = clusterClients.putIfAbsent(clusterKey, clusterClient);
+            if (existing != null) {
+                clusterClient.close();
+                clusterClient = existing;
+            }
+        }
+        return clusterClient;
+    }
+
+    private void closeClusterClient(String clusterKey) {
+        // A redeployed cluster starts with a closed breaker
+        circuitBreakers.remove(clusterKey);
+        final ClusterClient<String> clusterClient = clusterClients.remove(clusterKey);
+        if (clusterClient != null) {
+            clusterClient.close();
+        }
+    }
+
+    /**
+     * Updates the status of the latest version of the CR and waits for the write.
+     *
+     * @param update changes the status and returns whether it has changed, the CR is only written on changes
+     * @return whether the CR is up to date
+     */
+    private boolean updateStatus(FlinkApplication flinkApp, Predicate<FlinkApplicationStatus> update) {
+        return updateFlinkApp(flinkApp, latest -> update.test(getOrCreateStatus(latest)));
+    }
+
+    private boolean updateFlinkApp(FlinkApplication flinkApp, Predicate<FlinkApplication> update) {
+        try {
+            return TracingUtils.call("k8s.updateFlinkApplication", () -> updateFlinkAppAsync(flinkApp, update).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            LOG.warn("Failed to update {}", flinkApp.getMetadata().getName(), ExceptionUtils.stripExecutionException(e));
+            return false;
+        }
+    }
+
+    /**
+     * Applies the update to a copy of the latest version of the CR on the update thread, which is the only thread
+     * that writes FlinkApplications. The copy is replaced with its resource version locked, so a spec edited in the
+     * meantime is never overwritten and a deleted CR is never recreated. Conflicts are retried with the version read
+     * from the apiserver.
+     *
+     * @param update changes the copy and returns whether it has changed
+     * @return completes with whether the CR is up to date, or with false if the CR no longer exists
+     */
+    private CompletableFuture<Boolean> updateFlinkAppAsync(FlinkApplication flinkApp, Predicate<FlinkApplication> update) {
+        final String namespace = flinkApp.getMetadata().getNamespace();
+        final String name = flinkApp.getMetadata().getName();
+        final String uid = flinkApp.getMetadata().getUid();
+        return CompletableFuture.supplyAsync(() -> {
+            // The informer cache is up to date in most cases, the apiserver is only read after a conflict
+            FlinkApplication latest = flinkAppInformer.getIndexer().getByKey(Cache.metaNamespaceKeyFunc(flinkApp));
+            for (int attempt = 1; ; attempt++) {
+                if (latest == null || !Objects.equals(uid, latest.getMetadata().getUid())) {
+                    LOG.info("{} no longer exists, dropping the update", name);
+                    return false;
+                }
+                final FlinkApplication updated = KubernetesUtils.clone(latest);
+                if (!update.test(updated)) {
+                    return true;
+                }
+                try {
+                    flinkAppK8sClient.inNamespace(namespace).withName(name)
+                        .lockResourceVersion(updated.getMetadata().getResourceVersion())
+                        .replace(updated);
+                    return true;
+                } catch (KubernetesClientException e) {
+                    if (e.getCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                        LOG.info("{} no longer exists, dropping the update", name);
+                        return false;
+                    }
+                    if (e.getCode() != HttpURLConnection.HTTP_CONFLICT || attempt >= MAX_UPDATE_ATTEMPTS) {
+                        throw e;
+                    }
+                    LOG.debug("{} was changed concurrently, retrying the update", name);
+                    latest = flinkAppK8sClient.inNamespace(namespace).withName(name).get();
+                }
+            }
+        }, flinkAppUpdateService);
+    }
+
+    private static FlinkApplicationStatus getOrCreateStatus(FlinkApplication flinkApp) {
+        if (flinkApp.getStatus() == null) {
+            flinkApp.setStatus(new FlinkApplicationStatus());
+        }
+        return flinkApp.getStatus();
+    }
+
+    private synchronized void updateIngress() {
+        final List<IngressRule> ingressRules = new ArrayList<>();
+        final Set<String> clusterIds = new HashSet<>();
+        for (TrackedApplication trackedApp : flinkApps.values()) {
+            // Jobs on a session cluster share the rule of the session cluster
+            final String clusterId = trackedApp.getClusterId();
+            if (!clusterIds.add(clusterId)) {
+                continue;
+            }
+            final int restPort = trackedApp.getEffectiveConfig().getInteger(RestOptions.PORT);
 
             final String ingressHost = clusterId + Constants.INGRESS_SUFFIX;
             ingressRules.add(new IngressRule(ingressHost, new HTTPIngressRuleValueBuilder()
@@ -234,172 +1240,447 @@ public class FlinkApplicationController {
         } else {
             KubernetesUtils.setOwnerReference(deployment, Collections.singletonList(ingress));
         }
-        kubernetesClient.resourceList(ingress).inNamespace(operatorNamespace).createOrReplace();
+        TracingUtils.run("k8s.updateIngress", () -> kubernetesClient.resourceList(ingress).inNamespace(operatorNamespace).createOrReplace());
     }
 
-    private void triggerSavepoint(FlinkApplication oldFlinkApp, FlinkApplication newFlinkApp, Configuration effectiveConfig) {
+    private boolean triggerSavepoint(TrackedApplication trackedApp, FlinkApplication newFlinkApp, Configuration effectiveConfig) {
         final int generation = newFlinkApp.getSpec().getSavepointGeneration();
-        if (generation > oldFlinkApp.getSpec().getSavepointGeneration()) {
+        if (generation > trackedApp.getSavepointGeneration()) {
             try {
-                ClusterClient<String> clusterClient = FlinkUtils.getRestClusterClient(effectiveConfig);
-                final CompletableFuture<Collection<JobStatusMessage>> jobDetailsFuture = clusterClient.listJobs();
-                jobDetailsFuture.get().forEach(
-                    status -> {
-                        LOG.debug("JobStatus for cluster ID: {} : {}", clusterClient.getClusterId(), status.getJobState());
-                        clusterClient.triggerSavepoint(status.getJobId(), null)
-                            .thenAccept(path -> {
-                                savepointLocation.put(status.getJobId().toString(), path);
-                                LOG.info("Trigger a Savepoint: savepoint generated Successfully, path: {}", path);
-                            });
-                    });
+                ClusterClient<String> clusterClient = getClusterClient(effectiveConfig);
+                final Collection<JobStatusMessage> jobs = listJobs(newFlinkApp, effectiveConfig);
+                if (!jobs.isEmpty()) {
+                    // Written before the trigger, so that it never overwrites the condition of a completed savepoint
+                    updateStatus(newFlinkApp,
+                        status -> setCondition(status, Condition.SAVEPOINT_IN_PROGRESS, true, "SavepointTriggered", null));
+                }
+                for (JobStatusMessage job : jobs) {
+                    LOG.debug("JobStatus for cluster ID: {} : {}", clusterClient.getClusterId(), job.getJobState());
+                    // Only the trigger is traced, the savepoint itself completes asynchronously
+                    TracingUtils.run("flink.triggerSavepoint", () -> clusterClient.triggerSavepoint(job.getJobId(), null)
+                        .whenComplete((path, throwable) -> onSavepointCompleted(newFlinkApp, job.getJobId().toString(), path, throwable)));
+                    eventRecorder.normal(newFlinkApp, "SavepointTriggered", "Triggered savepoint for job " + job.getJobId());
+                }
             } catch (Exception e) {
-                LOG.warn("Failed to trigger a new savepoint with generation {}", generation);
+                LOG.warn("Failed to trigger a new savepoint with generation {}", generation, e);
+                controllerMetrics.recordError();
+                eventRecorder.warning(newFlinkApp, "SavepointFailed",
+                    "Failed to trigger savepoint with generation " + generation + ": " + KubernetesUtils.getRootCauseMessage(e));
+                updateStatus(newFlinkApp,
+                    status -> setCondition(status, Condition.SAVEPOINT_IN_PROGRESS, false,
+                        "SavepointFailed", KubernetesUtils.getRootCauseMessage(e)));
+                return false;
             }
         }
+        return true;
     }
 
-    // dual mode in Lyft operator
-    private void triggerImageUpdate(FlinkApplication oldFlinkApp, FlinkApplication newFlinkApp, Configuration effectiveConfig) {
-        final String oldImageName = oldFlinkApp.getSpec().getImageName();
+    /**
+     * Runs on a thread of the REST client, which must not wait for the status write.
+     */
+    private void onSavepointCompleted(FlinkApplication flinkApp, String jobId, String path, Throwable throwable) {
+        final Predicate<FlinkApplication> update;
+        if (throwable != null) {
+            final String message = KubernetesUtils.getRootCauseMessage(throwable);
+            LOG.warn("Savepoint for job {} failed", jobId, throwable);
+            eventRecorder.warning(flinkApp, "SavepointFailed", "Savepoint for job " + jobId + " failed: " + message);
+            update = latest -> setCondition(getOrCreateStatus(latest), Condition.SAVEPOINT_IN_PROGRESS, false, "SavepointFailed", message);
+        } else {
+            savepointLocation.put(jobId, path);
+            LOG.info("Trigger a Savepoint: savepoint generated Successfully, path: {}", path);
+            eventRecorder.normal(flinkApp, "SavepointCompleted", "Savepoint for job " + jobId + " completed: " + path);
+            update = latest -> setCondition(getOrCreateStatus(latest), Condition.SAVEPOINT_IN_PROGRESS, false, "SavepointCompleted", path);
+        }
+        updateFlinkAppAsync(flinkApp, update).whenComplete((updated, t) -> {
+            if (t != null) {
+                LOG.warn("Failed to update status for {}", flinkApp.getMetadata().getName(), t);
+            }
+        });
+    }
+
+    /**
+     * Redeploys the Flink cluster with the new image (dual mode in Lyft operator). The state is carried over according
+     * to the upgrade mode of the application.
+     */
+    private boolean triggerImageUpdate(TrackedApplication trackedApp, FlinkApplication newFlinkApp, Configuration effectiveConfig) {
+        final String oldImageName = trackedApp.getImageName();
         final String newImageName = newFlinkApp.getSpec().getImageName();
-////        -d,--drain  Send MAX_WATERMARK before taking the savepoint and stopping the pipelne. default to false
-//        final boolean advanceToEndOfEventTime = newFlinkApp.getSpec().isDrainFlag();
-        LOG.info("Trying to compare image! old Image: {}, new image: {}.", oldImageName, newImageName);
+        LOG.debug("Trying to compare image! old Image: {}, new image: {}.", oldImageName, newImageName);
+        if (Objects.equals(oldImageName, newImageName)) {
+            return true;
+        }
 
+        final String upgradeMode = FlinkUtils.getUpgradeMode(newFlinkApp.getSpec());
+        LOG.info("Image need to be updated! old Image: {}, new image: {}, upgrade mode: {}.", oldImageName, newImageName, upgradeMode);
+        final String namespace = newFlinkApp.getMetadata().getNamespace();
+        final String clusterId = newFlinkApp.getMetadata().getName();
 
-        if (!oldImageName.equals(newImageName)) {
-            LOG.info("Image need to be updated! old Image: {}, new image: {}.", oldImageName, newImageName);
-            final String namespace = newFlinkApp.getMetadata().getNamespace();
-            final String clusterId = newFlinkApp.getMetadata().getName();
+        eventRecorder.normal(newFlinkApp, "UpgradeStarted",
+            "Upgrading image from " + oldImageName + " to " + newImageName + " with upgrade mode " + upgradeMode);
+        // The observed spec is left untouched, so that an upgrade interrupted by an operator restart is retried
+        updateStatus(newFlinkApp, status -> {
+            setCondition(status, Condition.UPGRADING, true, "UpgradeStarted", newImageName);
+            status.setUpgradePhase(UpgradePhase.UPGRADING);
+            return true;
+        });
+        boolean clusterDeleted = false;
+        try {
+            final String restorePath = stopJobsForUpgrade(newFlinkApp, effectiveConfig, upgradeMode);
+            if (restorePath != null) {
+                // Recorded before the cluster is deleted, so that the upgrade resumes from it after a failure
+                final String lastSavepoint = restorePath;
+                updateStatus(newFlinkApp, status -> {
+                    status.setLastSavepoint(lastSavepoint);
+                    return true;
+                });
+            }
 
-            final Configuration newEffectiveConfig;
+            // The job is stopped already, so the old cluster is deleted right away instead of waiting for its shutdown
+            closeClusterClient(namespace + "/" + clusterId);
+            TracingUtils.run("k8s.deleteDeployment", () -> kubernetesClient
+                .apps()
+                .deployments()
+                .inNamespace(namespace)
+                .withName(clusterId)
+                .cascading(true)
+                .delete());
+            clusterDeleted = true;
+            waitForDeploymentDeletion(namespace, clusterId);
 
-            try {
-                newEffectiveConfig = FlinkUtils.getEffectiveConfig(namespace, clusterId, newFlinkApp.getSpec());
-            } catch (Exception e) {
-                LOG.error("Failed to load configuration", e);
-                return;
+            final Configuration newEffectiveConfig =
+                FlinkUtils.getEffectiveConfig(kubeContext, namespace, clusterId, newFlinkApp.getSpec());
+            if (restorePath != null) {
+                newEffectiveConfig.setString(SavepointConfigOptions.SAVEPOINT_PATH, restorePath);
+                newEffectiveConfig.set(
+                    SavepointConfigOptions.SAVEPOINT_IGNORE_UNCLAIMED_STATE, newFlinkApp.getSpec().isAllowNonRestoredState());
+            } else {
+                // A stateless upgrade does not go back to the initial savepoint of the application either
+                newEffectiveConfig.removeConfig(SavepointConfigOptions.SAVEPOINT_PATH);
             }
+            LOG.info("Trying to deploy a new application with new image name: {}, restoring from {}", newImageName, restorePath);
+            deployApplicationCluster(newFlinkApp, newEffectiveConfig);
+            flinkApps.put(Cache.metaNamespaceKeyFunc(newFlinkApp), TrackedApplication.of(newFlinkApp, newEffectiveConfig));
 
-            try {
-                ClusterClient<String> clusterClient = FlinkUtils.getRestClusterClient(effectiveConfig);
-                final CompletableFuture<Collection<JobStatusMessage>> jobDetailsFuture = clusterClient.listJobs();
-
-                // Solution 1:
-                jobDetailsFuture.get().forEach(
-                    status -> {
-                        // step 1: stop the previous job with a savepoint
-                        LOG.info("JobStatus for cluster ID: {} : {}", clusterClient.getClusterId(), status.getJobState());
-                        LOG.info("Going to trigger a cancel with savepoint action with job id: {}", status.getJobId());
-
-                        CompletableFuture<Void> cancelWithSavepointFuture = clusterClient.cancelWithSavepoint(status.getJobId(), null)
-                            .thenAccept(path ->{
-                                savepointLocation.put(status.getJobId().toString(), path);
-                                LOG.info("Cancel with Savepoint: savepoint generated Successfully, path: {}", path);
-                                newFlinkApp.getSpec().setFromSavepoint(path);
-                            });
-
-                        cancelWithSavepointFuture.join();
-
-
-                        final String oldClusterId = oldFlinkApp.getMetadata().getName();
-                        final String oldNamespace = oldFlinkApp.getMetadata().getNamespace();
-
-                        // Wait for cancelWithSavepoint() to finish deleting the previous flink application.
-                        int count = 1;
-                        while (true) {
-                            try {
-                                Thread.sleep(3000);
-                                Deployment currentDeployment = kubernetesClient.apps().deployments().inNamespace(oldNamespace).withName(oldClusterId).get();
-                                if (currentDeployment == null) {
-                                    LOG.info("Old deployment is completed Terminated. Is ready for new deployment.");
-                                    break;
-                                }
-                                LOG.info("Wait for deployment to stop. wait time: {} seconds.", count * 3);
-                                LOG.info("The old deployment {} is existing, already triggered a delete operation, old deployment status: {}",oldClusterId,  currentDeployment.getStatus().toString());
-                            } catch (InterruptedException e) {
-                                e.printStackTrace();
-                            }
-                        }
-
-                        flinkApps.remove(oldClusterId);
+            updateIngress();
+            eventRecorder.normal(newFlinkApp, "Upgraded", "Upgraded image to " + newImageName);
+            updateStatus(newFlinkApp, status -> setCondition(status, Condition.UPGRADING, false, "Upgraded", newImageName));
+        } catch (Exception e) {
+            LOG.warn("Failed to trigger a image update action, oldImageName: {}, newImageName: {}.", oldImageName, newImageName, e);
+            controllerMetrics.recordError();
+            eventRecorder.warning(newFlinkApp, "UpgradeFailed",
+                "Failed to upgrade image to " + newImageName + ": " + KubernetesUtils.getRootCauseMessage(e));
+            final boolean deployed = !clusterDeleted;
+            updateStatus(newFlinkApp, status -> {
+                setCondition(status, Condition.UPGRADING, false, "UpgradeFailed", KubernetesUtils.getRootCauseMessage(e));
+                if (!deployed) {
+                    setCondition(status, Condition.DEPLOYED, false, "UpgradeFailed", KubernetesUtils.getRootCauseMessage(e));
+                }
+                status.setUpgradePhase(UpgradePhase.FAILED);
+                return true;
+            });
+            return false;
+        }
+        return true;
+    }
 
-                        // deploy new flink application
-                        if (newFlinkApp.getSpec().getFromSavepoint() != null) {
-                            final ClusterClientServiceLoader clusterClientServiceLoader = new DefaultClusterClientServiceLoader();
-                            final ApplicationDeployer deployer = new ApplicationClusterDeployer(clusterClientServiceLoader);
+    /**
+     * Stops the running jobs of the application for an upgrade or a mode switch. If no job is running, e.g. because it
+     * failed, the state is taken from the failed job or the status, as only stateless upgrades may lose the state.
+     *
+     * @return the savepoint or checkpoint to restore from, or null for a stateless upgrade
+     */
+    private String stopJobsForUpgrade(FlinkApplication flinkApp, Configuration effectiveConfig, String upgradeMode) throws Exception {
+        final ClusterClient<String> clusterClient = getClusterClient(effectiveConfig);
+        final List<JobStatusMessage> jobs = new ArrayList<>(listJobs(flinkApp, effectiveConfig));
+        String restorePath = null;
+        boolean stopped = false;
+        for (JobStatusMessage job : jobs) {
+            if (!job.getJobState().isGloballyTerminalState()) {
+                restorePath = stopJobForUpgrade(flinkApp, clusterClient, job.getJobId(), upgradeMode);
+                stopped = true;
+            }
+        }
+        if (stopped || Constants.UPGRADE_MODE_STATELESS.equals(upgradeMode)) {
+            return restorePath;
+        }
 
-                            final ApplicationConfiguration applicationConfiguration =
-                                new ApplicationConfiguration(newFlinkApp.getSpec().getMainArgs(), newFlinkApp.getSpec().getEntryClass());
-                            try {
-                                LOG.info("Trying to deploy a new application with new image name: {}", newImageName);
-                                deployer.run(effectiveConfig, applicationConfiguration);
-                                flinkApps.put(newFlinkApp.getMetadata().getName(), new Tuple2<>(newFlinkApp, newEffectiveConfig));
+        // The checkpoints of a failed job are more recent than the last savepoint, if they are retained
+        jobs.sort(Comparator.comparingLong(JobStatusMessage::getStartTime).reversed());
+        for (JobStatusMessage job : jobs) {
+            if (job.getJobState() == org.apache.flink.api.common.JobStatus.FAILED
+                && FlinkUtils.isRetainedOnFailure(clusterClient, job.getJobId())) {
+                final String checkpointPath = FlinkUtils.getLatestCheckpointPath(clusterClient, job.getJobId());
+                if (checkpointPath != null) {
+                    LOG.info("No job is running, the upgrade restores from checkpoint {} of failed job {}", checkpointPath, job.getJobId());
+                    return checkpointPath;
+                }
+            }
+        }
+        return getRecordedSavepoint(flinkApp, upgradeMode);
+    }
 
-                                updateIngress();
-                            } catch (Exception e) {
-                                LOG.error("Failed to deploy image updated cluster {}", newFlinkApp.getMetadata().getName(), e);
-                            }
-                        }
-                        else {
-                            LOG.warn("The savepoint path is not set into the new application!, fromSavepoint value: {}", newFlinkApp.getSpec().getFromSavepoint());
-                        }
-                    });
+    /**
+     * State to restore from if no job can be stopped: the last savepoint recorded in the status.
+     *
+     * @return the savepoint to restore from, or null for a stateless upgrade
+     * @throws IllegalStateException if there is no recorded savepoint for an upgrade that keeps the state
+     */
+    private String getRecordedSavepoint(FlinkApplication flinkApp, String upgradeMode) {
+        if (Constants.UPGRADE_MODE_STATELESS.equals(upgradeMode)) {
+            return null;
+        }
+        final FlinkApplicationStatus status = flinkApp.getStatus();
+        if (status == null || StringUtils.isNullOrWhitespaceOnly(status.getLastSavepoint())) {
+            throw new IllegalStateException("No job is running and no savepoint is recorded to restore from, set upgradeMode to "
+                + Constants.UPGRADE_MODE_STATELESS + " to start without state");
+        }
+        LOG.info("No job is running, restoring from the last savepoint {}", status.getLastSavepoint());
+        return status.getLastSavepoint();
+    }
 
-            } catch (Exception e) {
-                LOG.warn("Failed to trigger a image update action, oldImageName: {}, newImageName: {}. Exception: {}", oldImageName, newImageName, e);
+    /**
+     * Stops a job for an upgrade. In last-checkpoint mode the job is cancelled right away and the new cluster restores
+     * from its latest retained checkpoint, so the upgrade does not wait for a savepoint of the full state. This
+     * requires the running job to retain its checkpoints on cancellation, otherwise a savepoint is taken.
+     *
+     * @return the savepoint or checkpoint to restore from, or null for a stateless upgrade
+     */
+    private String stopJobForUpgrade(
+            FlinkApplication flinkApp,
+            ClusterClient<String> clusterClient,
+            JobID jobId,
+            String upgradeMode) throws Exception {
+        if (Constants.UPGRADE_MODE_STATELESS.equals(upgradeMode)) {
+            TracingUtils.call("flink.cancel", () -> clusterClient.cancel(jobId).get());
+            LOG.info("Cancelled job {} without state", jobId);
+            return null;
+        }
+        if (Constants.UPGRADE_MODE_LAST_CHECKPOINT.equals(upgradeMode)) {
+            if (!FlinkUtils.isRetainedOnCancellation(clusterClient, jobId)) {
+                // E.g. the Flink config of the spec deletes externalized checkpoints on cancellation
+                LOG.warn("Checkpoints of job {} are not retained on cancellation, falling back to a savepoint", jobId);
+            } else {
+                final String checkpointPath = FlinkUtils.getLatestCheckpointPath(clusterClient, jobId);
+                if (checkpointPath != null) {
+                    TracingUtils.call("flink.cancel", () -> clusterClient.cancel(jobId).get());
+                    LOG.info("Cancelled job {}, the upgrade restores from checkpoint {}", jobId, checkpointPath);
+                    eventRecorder.normal(flinkApp, "JobCancelled", "Cancelled job " + jobId + " to upgrade from checkpoint " + checkpointPath);
+                    return checkpointPath;
+                }
+                LOG.warn("Job {} has no completed checkpoint, falling back to a savepoint", jobId);
             }
         }
+
+        final String savepointPath = TracingUtils.call("flink.stopWithSavepoint", () -> clusterClient
+            .stopWithSavepoint(jobId, flinkApp.getSpec().isDrainFlag(), null)
+            .get(FINAL_SAVEPOINT_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        savepointLocation.put(jobId.toString(), savepointPath);
+        LOG.info("Stopped job {} with savepoint {}", jobId, savepointPath);
+        eventRecorder.normal(flinkApp, "SavepointCompleted", "Stopped job " + jobId + " with savepoint " + savepointPath);
+        return savepointPath;
     }
 
-    private void addToWorkQueue(FlinkApplication flinkApplication) {
+    private void waitForDeploymentDeletion(String namespace, String clusterId) throws Exception {
+        TracingUtils.run("k8s.waitForDeploymentDeletion", () -> {
+            final long deadline = System.currentTimeMillis() + DEPLOYMENT_DELETION_TIMEOUT_MS;
+            while (kubernetesClient.apps().deployments().inNamespace(namespace).withName(clusterId).get() != null) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new TimeoutException(
+                        "Deployment " + clusterId + " was not deleted within " + DEPLOYMENT_DELETION_TIMEOUT_MS + " ms");
+                }
+                Thread.sleep(DEPLOYMENT_POLL_INTERVAL_MS);
+            }
+        });
+    }
+
+    private void addToWorkQueue(FlinkApplication flinkApplication, PriorityWorkQueue.Priority priority) {
         String item = Cache.metaNamespaceKeyFunc(flinkApplication);
         if (item != null && !item.isEmpty()) {
-            LOG.info("Adding item {} to work queue", item);
-            workqueue.add(item);
+            LOG.debug("Adding item {} to work queue with priority {}", item, priority);
+            workqueue.add(item, priority);
         }
     }
 
+    /**
+     * Spec changes and deletions are reconciled first. Other updates, e.g. the status written by the operator itself,
+     * do not require any action in most cases.
+     */
+    private PriorityWorkQueue.Priority getPriority(FlinkApplication flinkApp) {
+        if (flinkApp.getMetadata().getDeletionTimestamp() != null) {
+            return PriorityWorkQueue.Priority.HIGH;
+        }
+        final TrackedApplication trackedApp = flinkApps.get(Cache.metaNamespaceKeyFunc(flinkApp));
+        if (trackedApp == null || !FlinkUtils.computeSpecHash(flinkApp.getSpec()).equals(trackedApp.getSpecHash())) {
+            return PriorityWorkQueue.Priority.HIGH;
+        }
+        return PriorityWorkQueue.Priority.LOW;
+    }
+
+    /**
+     * Requeues a failed application with medium priority after an exponential backoff.
+     */
+    private void scheduleRetry(String item) {
+        final int retries = retryCounts.merge(item, 1, Integer::sum);
+        final long delayMs = Math.min(RETRY_MAX_DELAY_MS, RETRY_INITIAL_DELAY_MS << Math.min(retries - 1, 16));
+        LOG.info("Retrying {} in {} ms", item, delayMs);
+        retryService.schedule(() -> workqueue.add(item, PriorityWorkQueue.Priority.MEDIUM), delayMs, TimeUnit.MILLISECONDS);
+    }
+
     private class JobStatusUpdater implements Runnable {
         @Override
         public void run() {
             LOG.info("Starting JobStatusUpdater");
-            while (true) {
-                for (Tuple2<FlinkApplication, Configuration> flinkApp : flinkApps.values()) {
+            while (running) {
+                for (TrackedApplication trackedApp : flinkApps.values()) {
+                    final FlinkApplication latestFlinkApp = flinkAppInformer.getIndexer().getByKey(trackedApp.getKey());
+                    if (latestFlinkApp == null || latestFlinkApp.getMetadata().getDeletionTimestamp() != null) {
+                        continue;
+                    }
+                    putLoggingContext(latestFlinkApp.getMetadata().getNamespace(), latestFlinkApp.getMetadata().getName());
+                    final Configuration effectiveConfig = trackedApp.getEffectiveConfig();
                     try {
-                        final ClusterClient<String> clusterClient = FlinkUtils.getRestClusterClient(flinkApp.f1);
-                        final CompletableFuture<Collection<JobStatusMessage>> jobDetailsFuture = clusterClient.listJobs();
-                        final List<JobStatus> jobStatusList = new ArrayList<>();
-                        jobDetailsFuture.get().forEach(
-                            status -> {
-                                LOG.debug("JobStatus for cluster ID: {} : {}", clusterClient.getClusterId(), status.getJobState());
-                                final String jobId = status.getJobId().toString();
-                                final JobStatus jobStatus = new JobStatus(
-                                    status.getJobName(),
-                                    jobId,
-                                    status.getJobState().name(),
-                                    String.valueOf(System.currentTimeMillis()));
-                                if (savepointLocation.containsKey(jobId)) {
-                                    jobStatus.setSavepointLocation(savepointLocation.get(jobId));
-                                }
-                                jobStatusList.add(jobStatus);
-                            });
-                        flinkApp.f0.setStatus(new FlinkApplicationStatus(jobStatusList.toArray(new JobStatus[0])));
-
-                        // TODO: FUYAO - support the updateImage Use case
-                        flinkAppK8sClient.inNamespace(flinkApp.f0.getMetadata().getNamespace()).createOrReplace(flinkApp.f0);
+                        TracingUtils.run("updateJobStatus", () -> {
+                            final Collection<JobStatusMessage> jobs = listJobs(latestFlinkApp, effectiveConfig);
+                            // The new status is computed on a copy of the latest version and the CR is only written
+                            // when something changed, every write is a watch event for all clients. If the write
+                            // fails, the next sweep detects the same change again.
+                            updateStatus(latestFlinkApp, status -> updateJobStatuses(status, jobs)
+                                | updateReadyCondition(status)
+                                | updateCircuitState(status, effectiveConfig));
+                        });
                     } catch (Exception e) {
-                        flinkApp.f0.setStatus(new FlinkApplicationStatus());
-                        LOG.warn("Failed to list jobs for {}", flinkApp.f0.getMetadata().getName(), e);
+                        if (e instanceof CircuitBreaker.OpenException) {
+                            LOG.debug("Skipped listing jobs for {}: {}", trackedApp.getName(), e.getMessage());
+                        } else {
+                            LOG.warn("Failed to list jobs for {}", trackedApp.getName(), e);
+                        }
+                        // The last observed job status is kept, only the condition and breaker state are updated
+                        updateStatus(latestFlinkApp, status -> {
+                            final boolean conditionChanged =
+                                setCondition(status, Condition.READY, false, "JobManagerUnreachable", null);
+                            if (conditionChanged) {
+                                eventRecorder.warning(latestFlinkApp, "JobManagerUnreachable", "Failed to list jobs of the Flink cluster");
+                            }
+                            return updateCircuitState(status, effectiveConfig) | conditionChanged;
+                        });
+                    } finally {
+                        MDC.clear();
                     }
                 }
 
                 try {
                     Thread.sleep(RECONCILE_INTERVAL_MS);
                 } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
                     LOG.error("JobStatusUpdater interrupt");
                 }
             }
         }
+
+        /**
+         * @return whether the breaker state in the status has changed
+         */
+        private boolean updateCircuitState(FlinkApplicationStatus status, Configuration effectiveConfig) {
+            final String state = getCircuitBreaker(getClusterKey(effectiveConfig)).getState().name();
+            if (state.equals(status.getJobManagerCircuitState())) {
+                return false;
+            }
+            status.setJobManagerCircuitState(state);
+            return true;
+        }
+
+        private boolean updateReadyCondition(FlinkApplicationStatus status) {
+            final JobStatus currentJob = status.getCurrentJob();
+            if (currentJob == null) {
+                return setCondition(status, Condition.READY, false, "NoJob", null);
+            }
+            final boolean running = org.apache.flink.api.common.JobStatus.RUNNING.name().equals(currentJob.getState());
+            return setCondition(
+                status,
+                Condition.READY,
+                running,
+                running ? "JobRunning" : "JobNotRunning",
+                "Job " + currentJob.getJobId() + " is " + currentJob.getState());
+        }
+
+        /**
+         * Compacts the listed jobs into the status. The most recently started job is kept in full, all others are
+         * kept as summaries in a bounded history. Transition times are only updated when a job changes its state.
+         *
+         * @return whether the status has changed
+         */
+        private boolean updateJobStatuses(FlinkApplicationStatus status, Collection<JobStatusMessage> jobs) {
+            final long now = System.currentTimeMillis();
+            JobStatusMessage currentJobMessage = null;
+            for (JobStatusMessage job : jobs) {
+                if (currentJobMessage == null || job.getStartTime() > currentJobMessage.getStartTime()) {
+                    currentJobMessage = job;
+                }
+            }
+
+            final JobStatus previousJob = status.getCurrentJob();
+            JobStatus currentJob = null;
+            if (currentJobMessage != null) {
+                final String jobId = currentJobMessage.getJobId().toString();
+                final String state = currentJobMessage.getJobState().name();
+                final boolean unchanged = previousJob != null
+                    && jobId.equals(previousJob.getJobId())
+                    && state.equals(previousJob.getState());
+                currentJob = new JobStatus(
+                    currentJobMessage.getJobName(),
+                    jobId,
+                    state,
+                    unchanged ? previousJob.getLastTransitionTime() : now);
+                currentJob.setSavepointLocation(savepointLocation.get(jobId));
+            }
+
+            final Map<String, JobSummary> history = new LinkedHashMap<>();
+            if (status.getJobHistory() != null) {
+                for (JobSummary jobSummary : status.getJobHistory()) {
+                    history.put(jobSummary.getJobId(), jobSummary);
+                }
+            }
+            if (previousJob != null && (currentJob == null || !previousJob.getJobId().equals(currentJob.getJobId()))) {
+                history.put(previousJob.getJobId(), new JobSummary(
+                    previousJob.getJobId(), previousJob.getState(), previousJob.getLastTransitionTime()));
+            }
+            for (JobStatusMessage job : jobs) {
+                if (job == currentJobMessage) {
+                    continue;
+                }
+                final String jobId = job.getJobId().toString();
+                final String state = job.getJobState().name();
+                final JobSummary previousSummary = history.get(jobId);
+                if (previousSummary == null || !state.equals(previousSummary.getState())) {
+                    history.put(jobId, new JobSummary(jobId, state, now));
+                }
+            }
+            if (currentJob != null) {
+                history.remove(currentJob.getJobId());
+            }
+            JobSummary[] jobHistory = history.values().stream()
+                .sorted(Comparator.comparingLong(JobSummary::getLastTransitionTime).reversed())
+                .limit(FlinkApplicationStatus.MAX_JOB_HISTORY_SIZE)
+                .toArray(JobSummary[]::new);
+            if (jobHistory.length == 0) {
+                jobHistory = null;
+            }
+
+            boolean changed = false;
+            if (!Objects.equals(previousJob, currentJob) || !Arrays.equals(status.getJobHistory(), jobHistory)) {
+                status.setCurrentJob(currentJob);
+                status.setJobHistory(jobHistory);
+                changed = true;
+            }
+            if (currentJob != null
+                && currentJob.getSavepointLocation() != null
+                && !currentJob.getSavepointLocation().equals(status.getLastSavepoint())) {
+                status.setLastSavepoint(currentJob.getSavepointLocation());
+                changed = true;
+            }
+            return changed;
+        }
     }
 }
@@ -0,0 +1,137 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Work queue of the controller with one lane per priority.
+ *
+ * <p>A key is queued at most once, adding a queued key again can only raise its priority. The lanes are served by
+ * weighted round robin, so that spec changes are reconciled first during a resync storm while the lower lanes still
+ * make progress.
+ */
+public class PriorityWorkQueue {
+
+    /**
+     * Priority lanes, in decreasing priority.
+     */
+    public enum Priority {
+        // Spec changes and deletions
+        HIGH,
+        // Retries of failed reconciles
+        MEDIUM,
+        // Periodic resyncs and status updates
+        LOW
+    }
+
+    // Under full load, 8 of 12 takes serve the high lane, 3 the medium lane and 1 the low lane
+    private static final Priority[] SCHEDULE = {
+        Priority.HIGH, Priority.HIGH, Priority.MEDIUM,
+        Priority.HIGH, Priority.HIGH, Priority.MEDIUM,
+        Priority.HIGH, Priority.HIGH, Priority.MEDIUM,
+        Priority.HIGH, Priority.HIGH, Priority.LOW
+    };
+
+    private final Map<Priority, ArrayDeque<String>> lanes = new EnumMap<>(Priority.class);
+    private final Map<String, QueuedKey> queuedKeys = new HashMap<>();
+    private int scheduleIndex;
+
+    public PriorityWorkQueue() {
+        for (Priority priority : Priority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    public synchronized void add(String key, Priority priority) {
+        final QueuedKey queuedKey = queuedKeys.get(key);
+        if (queuedKey != null) {
+            if (priority.compareTo(queuedKey.priority) >= 0) {
+                return;
+            }
+            // The key left in the lower lane is skipped when it is taken
+            queuedKeys.put(key, new QueuedKey(priority, queuedKey.enqueueTimeNanos));
+        } else {
+            queuedKeys.put(key, new QueuedKey(priority, System.nanoTime()));
+        }
+        lanes.get(priority).addLast(key);
+        notifyAll();
+    }
+
+    /**
+     * Takes the next key, waiting until one is available.
+     */
+    public synchronized Item take() throws InterruptedException {
+        while (true) {
+            while (queuedKeys.isEmpty()) {
+                wait();
+            }
+            for (int i = 0; i < SCHEDULE.length; i++) {
+                final Priority lane = SCHEDULE[scheduleIndex];
+                scheduleIndex = (scheduleIndex + 1) % SCHEDULE.length;
+                final Item item = poll(lane);
+                if (item != null) {
+                    return item;
+                }
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return queuedKeys.size();
+    }
+
+    private Item poll(Priority lane) {
+        final ArrayDeque<String> keys = lanes.get(lane);
+        String key;
+        while ((key = keys.pollFirst()) != null) {
+            final QueuedKey queuedKey = queuedKeys.get(key);
+            if (queuedKey != null && queuedKey.priority == lane) {
+                queuedKeys.remove(key);
+                return new Item(key, lane, queuedKey.enqueueTimeNanos);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A key taken from the queue.
+     */
+    public static class Item {
+        private final String key;
+        private final Priority priority;
+        private final long enqueueTimeNanos;
+
+        private Item(String key, Priority priority, long enqueueTimeNanos) {
+            this.key = key;
+            this.priority = priority;
+            this.enqueueTimeNanos = enqueueTimeNanos;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Time since the key was first added, which is kept when its priority is raised.
+         */
+        public long getQueueTimeMillis() {
+            return (System.nanoTime() - enqueueTimeNanos) / 1_000_000;
+        }
+    }
+
+    private static class QueuedKey {
+        private final Priority priority;
+        private final long enqueueTimeNanos;
+
+        private QueuedKey(Priority priority, long enqueueTimeNanos) {
+            this.priority = priority;
+            this.enqueueTimeNanos = enqueueTimeNanos;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.kubernetes.operator.Utils.TokenBucket;
+import org.apache.flink.kubernetes.operator.crd.spec.SavepointRetention;
+import org.apache.flink.core.fs.FileStatus;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Disposes savepoints that are expired by the retention policy of a Flink application.
+ *
+ * <p>Only savepoints of the given jobs are considered. Savepoints are identified by their directory name, which Flink
+ * creates as {@code savepoint-<first 6 chars of job id>-<random>}. The prefix may collide with the jobs of other
+ * applications, so the directory must only hold the savepoints of one application. Application clusters with high
+ * availability all run their job as {@code 00000000000000000000000000000000}, such savepoints are never disposed.
+ *
+ * <p>Savepoints are ordered and aged by the modification time of their {@code _metadata} file, as object stores like
+ * S3 report no modification time for directories. Savepoints without that time are never disposed.
+ */
+public class SavepointCleaner {
+    private static final Logger LOG = LoggerFactory.getLogger(SavepointCleaner.class);
+
+    private static final String SAVEPOINT_PREFIX = "savepoint-";
+    private static final String METADATA_FILE_NAME = "_metadata";
+    private static final int JOB_ID_PREFIX_LENGTH = 6;
+    // Fixed job id of application clusters with high availability, shared by all such applications
+    private static final String ZERO_JOB_ID = new JobID(0, 0).toHexString();
+
+    private final ExecutorService executorService;
+    private final TokenBucket disposeRateLimiter;
+
+    public SavepointCleaner(int parallelism, double disposalsPerSecond) {
+        this.executorService = Executors.newFixedThreadPool(parallelism);
+        this.disposeRateLimiter = new TokenBucket(parallelism, disposalsPerSecond);
+    }
+
+    /**
+     * Finds the savepoints of the given jobs that are expired by the retention policy, i.e. that are not among the
+     * {@code keepLast} most recent ones or older than {@code maxAgeSeconds}. Protected savepoints are never returned.
+     *
+     * @param protectedSavepoints directory names of savepoints that must be kept, e.g. the one to restore from
+     */
+    public static List<Path> findExpiredSavepoints(
+            Path savepointsDir,
+            Collection<String> jobIds,
+            SavepointRetention retention,
+            Set<String> protectedSavepoints,
+            long now) throws IOException {
+        final FileSystem fileSystem = savepointsDir.getFileSystem();
+        if (!fileSystem.exists(savepointsDir)) {
+            return Collections.emptyList();
+        }
+        if (jobIds.contains(ZERO_JOB_ID)) {
+            LOG.warn("Not disposing savepoints of job {} in {}, they may belong to any application with high availability",
+                ZERO_JOB_ID, savepointsDir);
+        }
+        final Set<String> jobIdPrefixes = jobIds.stream()
+            .filter(jobId -> !ZERO_JOB_ID.equals(jobId))
+            .filter(jobId -> jobId.length() >= JOB_ID_PREFIX_LENGTH)
+            .map(jobId -> jobId.substring(0, JOB_ID_PREFIX_LENGTH))
+            .collect(Collectors.toSet());
+        final List<Savepoint> savepoints = new ArrayList<>();
+        for (FileStatus status : fileSystem.listStatus(savepointsDir)) {
+            if (!status.isDir() || !isSavepointOf(status.getPath().getName(), jobIdPrefixes)) {
+                continue;
+            }
+            final long timestamp = getTimestamp(fileSystem, status.getPath());
+            if (timestamp <= 0) {
+                LOG.warn("Savepoint {} has no modification time of its metadata, it is never disposed", status.getPath());
+                continue;
+            }
+            savepoints.add(new Savepoint(status.getPath(), timestamp));
+        }
+        savepoints.sort(Comparator.comparingLong((Savepoint savepoint) -> savepoint.timestamp).reversed());
+
+        final List<Path> expired = new ArrayList<>();
+        for (int i = 0; i < savepoints.size(); i++) {
+            final Savepoint savepoint = savepoints.get(i);
+            final boolean beyondKeepLast = retention.getKeepLast() > 0 && i >= retention.getKeepLast();
+            final boolean tooOld = retention.getMaxAgeSeconds() > 0
+                && now - savepoint.timestamp > retention.getMaxAgeSeconds() * 1000;
+            if ((beyondKeepLast || tooOld) && !protectedSavepoints.contains(savepoint.path.getName())) {
+                expired.add(savepoint.path);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the directory name of a savepoint path. Flink also accepts the path of the {@code _metadata} file of a
+     * savepoint, e.g. in {@code fromSavepoint}.
+     */
+    public static String getSavepointName(String savepointPath) {
+        final Path path = new Path(savepointPath);
+        return METADATA_FILE_NAME.equals(path.getName()) && path.getParent() != null
+            ? path.getParent().getName()
+            : path.getName();
+    }
+
+    /**
+     * Modification time of the metadata file of the savepoint, or 0 if it is unknown, e.g. for an incomplete savepoint.
+     */
+    private static long getTimestamp(FileSystem fileSystem, Path savepoint) {
+        try {
+            return fileSystem.getFileStatus(new Path(savepoint, METADATA_FILE_NAME)).getModificationTime();
+        } catch (IOException e) {
+            LOG.debug("Failed to read the metadata of savepoint {}", savepoint, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Disposes the savepoints in parallel, limited to the configured rate.
+     *
+     * @return number of disposed savepoints
+     */
+    public int dispose(List<Path> savepoints) throws InterruptedException {
+        final List<Future<Boolean>> futures = new ArrayList<>();
+        for (Path savepoint : savepoints) {
+            disposeRateLimiter.acquire();
+            futures.add(executorService.submit(() -> {
+                try {
+                    final boolean deleted = savepoint.getFileSystem().delete(savepoint, true);
+                    LOG.info("Disposed savepoint {}", savepoint);
+                    return deleted;
+                } catch (IOException e) {
+                    LOG.warn("Failed to dispose savepoint {}", savepoint, e);
+                    return false;
+                }
+            }));
+        }
+
+        int disposed = 0;
+        for (Future<Boolean> future : futures) {
+            try {
+                if (future.get()) {
+                    disposed++;
+                }
+            } catch (ExecutionException e) {
+                LOG.warn("Failed to dispose savepoint", e);
+            }
+        }
+        return disposed;
+    }
+
+    public void close() {
+        executorService.shutdownNow();
+    }
+
+    private static final class Savepoint {
+        private final Path path;
+        private final long timestamp;
+
+        private Savepoint(Path path, long timestamp) {
+            this.path = path;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static boolean isSavepointOf(String name, Set<String> jobIdPrefixes) {
+        return name.startsWith(SAVEPOINT_PREFIX)
+            && name.length() >= SAVEPOINT_PREFIX.length() + JOB_ID_PREFIX_LENGTH
+            && jobIdPrefixes.contains(name.substring(SAVEPOINT_PREFIX.length(), SAVEPOINT_PREFIX.length() + JOB_ID_PREFIX_LENGTH));
+    }
+}
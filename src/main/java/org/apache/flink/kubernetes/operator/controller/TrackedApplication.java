@@ -0,0 +1,109 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import org.apache.flink.kubernetes.operator.Utils.Constants;
+import org.apache.flink.kubernetes.operator.Utils.FlinkUtils;
+import org.apache.flink.kubernetes.operator.crd.FlinkApplication;
+import org.apache.flink.kubernetes.operator.crd.spec.FlinkApplicationSpec;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.kubernetes.configuration.KubernetesConfigOptions;
+
+import java.util.Map;
+
+/**
+ * What the operator keeps in memory for a Flink application between reconciles.
+ *
+ * <p>Instead of a copy of the CR and its full configuration, only the observed fields that new specs are compared
+ * against and the configuration entries that differ from the shared base configuration are kept.
+ */
+public class TrackedApplication {
+    private final String namespace;
+    private final String name;
+    // Null if the observed spec is unknown, e.g. recovered from a CR without status
+    private final String specHash;
+    // Mode the application runs in, which differs from the spec until a mode switch is reconciled
+    private final String mode;
+    private final String imageName;
+    private final int savepointGeneration;
+    private final Map<String, String> configOverrides;
+
+    public TrackedApplication(
+            String namespace,
+            String name,
+            String specHash,
+            String mode,
+            String imageName,
+            int savepointGeneration,
+            Configuration effectiveConfig) {
+        this.namespace = namespace;
+        this.name = name;
+        this.specHash = specHash;
+        this.mode = mode;
+        this.imageName = imageName;
+        this.savepointGeneration = savepointGeneration;
+        this.configOverrides = FlinkUtils.computeConfigOverrides(effectiveConfig);
+    }
+
+    public static TrackedApplication of(FlinkApplication flinkApp, Configuration effectiveConfig) {
+        final FlinkApplicationSpec spec = flinkApp.getSpec();
+        return new TrackedApplication(
+            flinkApp.getMetadata().getNamespace(),
+            flinkApp.getMetadata().getName(),
+            FlinkUtils.computeSpecHash(spec),
+            FlinkUtils.getMode(spec),
+            spec.getImageName(),
+            spec.getSavepointGeneration(),
+            effectiveConfig);
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Key of the application in the informer cache.
+     */
+    public String getKey() {
+        return namespace + "/" + name;
+    }
+
+    public String getSpecHash() {
+        return specHash;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public boolean isSessionMode() {
+        return Constants.MODE_SESSION.equals(mode);
+    }
+
+    public String getImageName() {
+        return imageName;
+    }
+
+    public int getSavepointGeneration() {
+        return savepointGeneration;
+    }
+
+    /**
+     * Id of the Flink cluster the application runs on, which is shared by the jobs of a session cluster.
+     */
+    public String getClusterId() {
+        final String clusterId = configOverrides.get(KubernetesConfigOptions.CLUSTER_ID.key());
+        return clusterId != null ? clusterId : FlinkUtils.getBaseConfig().get(KubernetesConfigOptions.CLUSTER_ID);
+    }
+
+    /**
+     * Rebuilds the effective configuration. Callers should not hold on to it, it is a full copy.
+     */
+    public Configuration getEffectiveConfig() {
+        final Configuration effectiveConfig = new Configuration(FlinkUtils.getBaseConfig());
+        configOverrides.forEach(effectiveConfig::setString);
+        return effectiveConfig;
+    }
+}
@@ -12,11 +12,18 @@ import java.util.Map;
 @JsonDeserialize()
 @ToString
 public class FlinkApplicationSpec implements KubernetesResource {
+    // application (default) or session
+    private String mode;
+    // Shared session cluster the job is submitted to in session mode
+    private String sessionClusterId;
+
     private String imageName;
     private String imagePullPolicy;
     private List<String> imagePullSecrets;
 
     private String jarURI;
+    // Optional SHA-256 of the jar in hex, verified when a remote jar is fetched
+    private String jarChecksum;
     private String[] mainArgs = new String[0];
     private String entryClass;
 
@@ -29,11 +36,32 @@ public class FlinkApplicationSpec implements KubernetesResource {
     private boolean allowNonRestoredState = false;
     private String savepointsDir;
     private int savepointGeneration;
+    private SavepointRetention savepointRetention;
 
+    // How the state is carried over when the job is redeployed: savepoint (default), last-checkpoint or stateless
+    private String upgradeMode;
     private boolean drainFlag = false;
+    // Stop the job with a final savepoint before the cluster is deleted
+    private boolean savepointOnDeletion = false;
 
     private Map<String, String> flinkConfig;
 
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public String getSessionClusterId() {
+        return sessionClusterId;
+    }
+
+    public void setSessionClusterId(String sessionClusterId) {
+        this.sessionClusterId = sessionClusterId;
+    }
+
     public String getImageName() {
         return imageName;
     }
@@ -66,6 +94,14 @@ public class FlinkApplicationSpec implements KubernetesResource {
         this.jarURI = jarURI;
     }
 
+    public String getJarChecksum() {
+        return jarChecksum;
+    }
+
+    public void setJarChecksum(String jarChecksum) {
+        this.jarChecksum = jarChecksum;
+    }
+
     public String[] getMainArgs() {
         return mainArgs;
     }
@@ -146,6 +182,22 @@ public class FlinkApplicationSpec implements KubernetesResource {
         this.savepointGeneration = savepointGeneration;
     }
 
+    public SavepointRetention getSavepointRetention() {
+        return savepointRetention;
+    }
+
+    public void setSavepointRetention(SavepointRetention savepointRetention) {
+        this.savepointRetention = savepointRetention;
+    }
+
+    public String getUpgradeMode() {
+        return upgradeMode;
+    }
+
+    public void setUpgradeMode(String upgradeMode) {
+        this.upgradeMode = upgradeMode;
+    }
+
     public boolean isDrainFlag() {
         return drainFlag;
     }
@@ -153,4 +205,12 @@ public class FlinkApplicationSpec implements KubernetesResource {
     public void setDrainFlag(boolean drainFlag) {
         this.drainFlag = drainFlag;
     }
+
+    public boolean isSavepointOnDeletion() {
+        return savepointOnDeletion;
+    }
+
+    public void setSavepointOnDeletion(boolean savepointOnDeletion) {
+        this.savepointOnDeletion = savepointOnDeletion;
+    }
 }
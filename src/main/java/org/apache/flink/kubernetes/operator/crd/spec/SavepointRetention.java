@@ -0,0 +1,33 @@
+package org.apache.flink.kubernetes.operator.crd.spec;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.fabric8.kubernetes.api.model.KubernetesResource;
+import lombok.ToString;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonDeserialize()
+@ToString
+
+public class SavepointRetention implements KubernetesResource {
+    // Number of most recent savepoints to keep, 0 to keep all
+    private int keepLast;
+    // Savepoints older than this are disposed, 0 to never expire
+    private long maxAgeSeconds;
+
+    public int getKeepLast() {
+        return keepLast;
+    }
+
+    public void setKeepLast(int keepLast) {
+        this.keepLast = keepLast;
+    }
+
+    public long getMaxAgeSeconds() {
+        return maxAgeSeconds;
+    }
+
+    public void setMaxAgeSeconds(long maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+}
@@ -0,0 +1,83 @@
+package org.apache.flink.kubernetes.operator.crd.status;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.fabric8.kubernetes.api.model.KubernetesResource;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Typed condition of a Flink application, following the Kubernetes condition conventions.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonDeserialize()
+@ToString
+@EqualsAndHashCode
+
+public class Condition implements KubernetesResource {
+    public static final String DEPLOYED = "Deployed";
+    public static final String READY = "Ready";
+    public static final String SAVEPOINT_IN_PROGRESS = "SavepointInProgress";
+    public static final String UPGRADING = "Upgrading";
+
+    public static final String STATUS_TRUE = "True";
+    public static final String STATUS_FALSE = "False";
+
+    private String type;
+    private String status;
+    private String reason;
+    private String message;
+    // Only changes when the status of the condition changes
+    private long lastTransitionTime;
+
+    public Condition() {
+    }
+
+    public Condition(String type, String status, String reason, String message, long lastTransitionTime) {
+        this.type = type;
+        this.status = status;
+        this.reason = reason;
+        this.message = message;
+        this.lastTransitionTime = lastTransitionTime;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public long getLastTransitionTime() {
+        return lastTransitionTime;
+    }
+
+    public void setLastTransitionTime(long lastTransitionTime) {
+        this.lastTransitionTime = lastTransitionTime;
+    }
+}
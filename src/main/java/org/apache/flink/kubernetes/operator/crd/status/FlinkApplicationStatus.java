@@ -3,29 +3,114 @@ package org.apache.flink.kubernetes.operator.crd.status;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.fabric8.kubernetes.api.model.KubernetesResource;
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonDeserialize()
 @ToString
+@EqualsAndHashCode
 
 public class FlinkApplicationStatus implements KubernetesResource {
-    private JobStatus[] jobStatuses;
+    /** Upper bound of the job history, so that the CR size does not grow with the number of jobs. */
+    public static final int MAX_JOB_HISTORY_SIZE = 10;
+
+    // The current job in full, earlier jobs only as summaries, most recent first
+    private JobStatus currentJob;
+    private JobSummary[] jobHistory;
+
+    private Condition[] conditions;
+
+    // State observed by the operator, used to rebuild its working set after a restart
+    private String lastObservedSpecHash;
+    private String observedMode;
+    private String observedImageName;
+    private int observedSavepointGeneration;
+    private String lastSavepoint;
+    private UpgradePhase upgradePhase;
+    // State of the circuit breaker of the JobManager: CLOSED, OPEN or HALF_OPEN
+    private String jobManagerCircuitState;
 
     public FlinkApplicationStatus() {
     }
 
-    public FlinkApplicationStatus(JobStatus[] jobStatuses) {
-        this.jobStatuses = jobStatuses;
+    public JobStatus getCurrentJob() {
+        return currentJob;
+    }
+
+    public void setCurrentJob(JobStatus currentJob) {
+        this.currentJob = currentJob;
+    }
+
+    public JobSummary[] getJobHistory() {
+        return jobHistory;
+    }
+
+    public void setJobHistory(JobSummary[] jobHistory) {
+        this.jobHistory = jobHistory;
     }
 
-    public JobStatus[] getJobStatuses() {
-        return jobStatuses;
+    public Condition[] getConditions() {
+        return conditions;
     }
 
-    public void setJobStatuses(JobStatus[] jobStatuses) {
-        this.jobStatuses = jobStatuses;
+    public void setConditions(Condition[] conditions) {
+        this.conditions = conditions;
     }
 
+    public String getLastObservedSpecHash() {
+        return lastObservedSpecHash;
+    }
+
+    public void setLastObservedSpecHash(String lastObservedSpecHash) {
+        this.lastObservedSpecHash = lastObservedSpecHash;
+    }
+
+    public String getObservedMode() {
+        return observedMode;
+    }
+
+    public void setObservedMode(String observedMode) {
+        this.observedMode = observedMode;
+    }
+
+    public String getObservedImageName() {
+        return observedImageName;
+    }
 
+    public void setObservedImageName(String observedImageName) {
+        this.observedImageName = observedImageName;
+    }
+
+    public int getObservedSavepointGeneration() {
+        return observedSavepointGeneration;
+    }
+
+    public void setObservedSavepointGeneration(int observedSavepointGeneration) {
+        this.observedSavepointGeneration = observedSavepointGeneration;
+    }
+
+    public String getLastSavepoint() {
+        return lastSavepoint;
+    }
+
+    public void setLastSavepoint(String lastSavepoint) {
+        this.lastSavepoint = lastSavepoint;
+    }
+
+    public UpgradePhase getUpgradePhase() {
+        return upgradePhase;
+    }
+
+    public void setUpgradePhase(UpgradePhase upgradePhase) {
+        this.upgradePhase = upgradePhase;
+    }
+
+    public String getJobManagerCircuitState() {
+        return jobManagerCircuitState;
+    }
+
+    public void setJobManagerCircuitState(String jobManagerCircuitState) {
+        this.jobManagerCircuitState = jobManagerCircuitState;
+    }
 }
@@ -3,27 +3,30 @@ package org.apache.flink.kubernetes.operator.crd.status;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import io.fabric8.kubernetes.api.model.KubernetesResource;
+import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonDeserialize()
 @ToString
+@EqualsAndHashCode
 
 public class JobStatus implements KubernetesResource {
     private String jobName;
     private String jobId;
     private String state;
-    private String updateTime;
+    // Only changes when the job changes its state
+    private long lastTransitionTime;
     private String savepointLocation;
 
     public JobStatus() {
     }
 
-    public JobStatus(String jobName, String jobId, String state, String updateTime) {
+    public JobStatus(String jobName, String jobId, String state, long lastTransitionTime) {
         this.jobName = jobName;
         this.jobId = jobId;
         this.state = state;
-        this.updateTime = updateTime;
+        this.lastTransitionTime = lastTransitionTime;
     }
 
     public String getJobName() {
@@ -50,12 +53,12 @@ public class JobStatus implements KubernetesResource {
         this.state = state;
     }
 
-    public String getUpdateTime() {
-        return updateTime;
+    public long getLastTransitionTime() {
+        return lastTransitionTime;
     }
 
-    public void setUpdateTime(String updateTime) {
-        this.updateTime = updateTime;
+    public void setLastTransitionTime(long lastTransitionTime) {
+        this.lastTransitionTime = lastTransitionTime;
     }
 
     public String getSavepointLocation() {
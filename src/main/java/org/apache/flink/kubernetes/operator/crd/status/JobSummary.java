@@ -0,0 +1,54 @@
+package org.apache.flink.kubernetes.operator.crd.status;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.fabric8.kubernetes.api.model.KubernetesResource;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Trimmed record of a job that is no longer the current job of the application.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonDeserialize()
+@ToString
+@EqualsAndHashCode
+
+public class JobSummary implements KubernetesResource {
+    private String jobId;
+    private String state;
+    private long lastTransitionTime;
+
+    public JobSummary() {
+    }
+
+    public JobSummary(String jobId, String state, long lastTransitionTime) {
+        this.jobId = jobId;
+        this.state = state;
+        this.lastTransitionTime = lastTransitionTime;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public long getLastTransitionTime() {
+        return lastTransitionTime;
+    }
+
+    public void setLastTransitionTime(long lastTransitionTime) {
+        this.lastTransitionTime = lastTransitionTime;
+    }
+}
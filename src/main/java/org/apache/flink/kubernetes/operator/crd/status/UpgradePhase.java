@@ -0,0 +1,10 @@
+package org.apache.flink.kubernetes.operator.crd.status;
+
+/**
+ * Phase of the last deploy or upgrade action taken by the operator, persisted so that it survives operator restarts.
+ */
+public enum UpgradePhase {
+    DEPLOYED,
+    UPGRADING,
+    FAILED
+}
@@ -0,0 +1,124 @@
+package org.apache.flink.kubernetes.operator;
+
+import org.apache.flink.kubernetes.operator.Utils.ArtifactCache;
+import org.apache.flink.kubernetes.operator.Utils.Constants;
+import org.apache.flink.kubernetes.operator.controller.FlinkApplicationController;
+import org.apache.flink.kubernetes.operator.crd.FlinkApplication;
+import org.apache.flink.kubernetes.operator.crd.spec.FlinkApplicationSpec;
+
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the controllers of several Kubernetes clusters run independently of each other.
+ */
+public class KubernetesOperatorEntrypointTest {
+
+    private static final long TIMEOUT_MS = 30 * 1000;
+
+    @Rule
+    public final KubernetesServer reachableServer = new KubernetesServer(true, true);
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final List<FlinkApplicationController> controllers = new ArrayList<>();
+    private final ExecutorService controllerExecutor = Executors.newCachedThreadPool();
+    private KubernetesClient unreachableClient;
+
+    @After
+    public void stopControllers() {
+        controllers.forEach(FlinkApplicationController::stop);
+        controllerExecutor.shutdownNow();
+        if (unreachableClient != null) {
+            unreachableClient.close();
+        }
+    }
+
+    @Test
+    public void testUnreachableClusterDoesNotStallOthers() throws Exception {
+        // Nothing listens on the port of the unreachable cluster
+        unreachableClient = new DefaultKubernetesClient(new ConfigBuilder()
+            .withMasterUrl("http://localhost:" + getFreePort())
+            .withNamespace("default")
+            .withConnectionTimeout(500)
+            .withRequestTimeout(500)
+            .build());
+        final KubernetesClient reachableClient = reachableServer.getClient();
+        final ArtifactCache artifactCache = new ArtifactCache(temporaryFolder.newFolder(), Long.MAX_VALUE, false);
+
+        final Future<?> unreachable = startController(unreachableClient, "unreachable", artifactCache);
+        final Future<?> reachable = startController(reachableClient, "reachable", artifactCache);
+
+        createFlinkApp(reachableClient, "first");
+        assertTrue("first was not reconciled", waitForFinalizer(reachableClient, "first"));
+        createFlinkApp(reachableClient, "second");
+        assertTrue("second was not reconciled", waitForFinalizer(reachableClient, "second"));
+        assertFalse(unreachable.isDone());
+        assertFalse(reachable.isDone());
+
+        // The controller of the unreachable cluster still waits for its informer, and stops when asked to
+        controllers.get(0).stop();
+        unreachable.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private Future<?> startController(KubernetesClient client, String kubeContext, ArtifactCache artifactCache) {
+        final FlinkApplicationController controller =
+            KubernetesOperatorEntrypoint.createController(client, kubeContext, artifactCache);
+        controllers.add(controller);
+        return controllerExecutor.submit(controller::run);
+    }
+
+    private static void createFlinkApp(KubernetesClient client, String name) {
+        final FlinkApplicationSpec spec = new FlinkApplicationSpec();
+        spec.setImageName("flink:1.12.1");
+        spec.setJarURI("local:///opt/flink/examples/streaming/StateMachineExample.jar");
+        // Rejected after the finalizer is added, so the test does not depend on deploying a Flink cluster
+        spec.setUpgradeMode("invalid");
+        final FlinkApplication flinkApp = new FlinkApplication();
+        flinkApp.setApiVersion("flink.k8s.io/v1alpha1");
+        flinkApp.setKind("FlinkApplication");
+        flinkApp.setMetadata(new ObjectMetaBuilder().withName(name).withNamespace("default").withUid(name).build());
+        flinkApp.setSpec(spec);
+        KubernetesOperatorEntrypoint.getFlinkAppClient(client).inNamespace("default").create(flinkApp);
+    }
+
+    private static boolean waitForFinalizer(KubernetesClient client, String name) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            final FlinkApplication flinkApp =
+                KubernetesOperatorEntrypoint.getFlinkAppClient(client).inNamespace("default").withName(name).get();
+            if (flinkApp.getMetadata().getFinalizers() != null
+                && flinkApp.getMetadata().getFinalizers().contains(Constants.FINALIZER_NAME)) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
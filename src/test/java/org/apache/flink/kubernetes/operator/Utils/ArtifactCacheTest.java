@@ -0,0 +1,192 @@
+package org.apache.flink.kubernetes.operator.Utils;
+
+import org.apache.flink.util.StringUtils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link ArtifactCache}.
+ */
+public class ArtifactCacheTest {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final Map<String, byte[]> jars = new ConcurrentHashMap<>();
+	private final AtomicInteger requests = new AtomicInteger();
+	private HttpServer server;
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			requests.incrementAndGet();
+			final byte[] content = jars.get(exchange.getRequestURI().getPath());
+			if (content == null) {
+				exchange.sendResponseHeaders(404, -1);
+			} else {
+				exchange.sendResponseHeaders(200, content.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(content);
+				}
+			}
+			exchange.close();
+		});
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testLocalJarIsUsedInPlace() throws Exception {
+		final File jar = temporaryFolder.newFile("job.jar");
+		final ArtifactCache cache = newCache(Long.MAX_VALUE);
+
+		assertEquals(jar, cache.resolve("local://" + jar.getAbsolutePath(), null));
+		assertEquals(jar, cache.resolve(jar.toURI().toString(), null));
+		assertEquals(0, requests.get());
+	}
+
+	@Test
+	public void testRemoteJarIsFetchedOnce() throws Exception {
+		final byte[] content = serve("/job.jar", "job");
+		final ArtifactCache cache = newCache(Long.MAX_VALUE);
+
+		final File first = cache.resolve(uri("/job.jar"), checksum(content));
+		final File second = cache.resolve(uri("/job.jar"), checksum(content));
+
+		assertEquals(first, second);
+		assertArrayEquals(content, Files.readAllBytes(first.toPath()));
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void testSameContentIsStoredOnce() throws Exception {
+		final byte[] content = serve("/v1/job.jar", "job");
+		serve("/v2/job.jar", "job");
+		final ArtifactCache cache = newCache(Long.MAX_VALUE);
+
+		final File first = cache.resolve(uri("/v1/job.jar"), checksum(content));
+		final File second = cache.resolve(uri("/v2/job.jar"), checksum(content));
+
+		assertEquals(first, second);
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void testChecksumMismatchIsRejected() throws Exception {
+		serve("/job.jar", "job");
+		final ArtifactCache cache = newCache(Long.MAX_VALUE);
+
+		try {
+			cache.resolve(uri("/job.jar"), checksum("other".getBytes(StandardCharsets.UTF_8)));
+			fail("The checksum mismatch was not detected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("Checksum mismatch"));
+		}
+		assertEquals(0, temporaryFolder.getRoot().toPath().resolve("cache").toFile().list().length);
+	}
+
+	@Test
+	public void testCachedJarsAreFoundAfterRestart() throws Exception {
+		final byte[] content = serve("/job.jar", "job");
+		final File first = newCache(Long.MAX_VALUE).resolve(uri("/job.jar"), checksum(content));
+
+		final File second = newCache(Long.MAX_VALUE).resolve(uri("/job.jar"), checksum(content));
+
+		assertEquals(first, second);
+		assertEquals(1, requests.get());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedJarIsEvicted() throws Exception {
+		serve("/a.jar", "aaaa");
+		serve("/b.jar", "bbbb");
+		// Room for a single jar
+		final ArtifactCache cache = newCache(6);
+
+		final File a = cache.resolve(uri("/a.jar"), null);
+		final File b = cache.resolve(uri("/b.jar"), null);
+
+		assertFalse(a.exists());
+		assertTrue(b.exists());
+	}
+
+	@Test
+	public void testPinnedJarIsNotEvicted() throws Exception {
+		serve("/a.jar", "aaaa");
+		serve("/b.jar", "bbbb");
+		serve("/c.jar", "cccc");
+		final ArtifactCache cache = newCache(6);
+
+		final File a = cache.resolve(uri("/a.jar"), null, "default/app");
+		final File b = cache.resolve(uri("/b.jar"), null);
+		assertTrue(a.exists());
+		assertTrue(b.exists());
+
+		cache.unpin("default/app");
+		final File c = cache.resolve(uri("/c.jar"), null);
+		assertFalse(a.exists());
+		assertFalse(b.exists());
+		assertTrue(c.exists());
+	}
+
+	@Test
+	public void testPinningAnotherJarReleasesThePrevious() throws Exception {
+		serve("/a.jar", "aaaa");
+		serve("/b.jar", "bbbb");
+		serve("/c.jar", "cccc");
+		final ArtifactCache cache = newCache(6);
+
+		final File a = cache.resolve(uri("/a.jar"), null, "default/app");
+		final File b = cache.resolve(uri("/b.jar"), null, "default/app");
+		final File c = cache.resolve(uri("/c.jar"), null);
+
+		assertFalse(a.exists());
+		assertTrue(b.exists());
+		assertTrue(c.exists());
+	}
+
+	private ArtifactCache newCache(long maxSizeBytes) throws IOException {
+		return new ArtifactCache(new File(temporaryFolder.getRoot(), "cache"), maxSizeBytes, true);
+	}
+
+	private byte[] serve(String path, String content) {
+		final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		jars.put(path, bytes);
+		return bytes;
+	}
+
+	private String uri(String path) {
+		return "http://localhost:" + server.getAddress().getPort() + path;
+	}
+
+	private static String checksum(byte[] content) throws Exception {
+		return StringUtils.byteToHexString(MessageDigest.getInstance("SHA-256").digest(content));
+	}
+}
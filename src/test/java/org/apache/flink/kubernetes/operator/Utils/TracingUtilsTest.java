@@ -0,0 +1,112 @@
+package org.apache.flink.kubernetes.operator.Utils;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link TracingUtils}.
+ */
+public class TracingUtilsTest {
+
+	private final InMemorySpanExporter spanExporter = InMemorySpanExporter.create();
+	private SdkTracerProvider tracerProvider;
+
+	@Before
+	public void initTracing() {
+		tracerProvider = SdkTracerProvider.builder()
+			.addSpanProcessor(SimpleSpanProcessor.create(spanExporter))
+			.build();
+		TracingUtils.init(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build());
+		MDC.put("namespace", "default");
+		MDC.put("app", "wordcount");
+	}
+
+	@After
+	public void resetTracing() {
+		TracingUtils.init(OpenTelemetry.noop());
+		tracerProvider.shutdown();
+		MDC.clear();
+	}
+
+	@Test
+	public void testNestedSpansAreTagged() {
+		TracingUtils.run("reconcile", () -> {
+			TracingUtils.setAction("deploy");
+			TracingUtils.run("k8s.getDeployment", () -> { });
+		});
+
+		// Spans are exported when they end, the child first
+		final List<SpanData> spans = spanExporter.getFinishedSpanItems();
+		assertEquals(2, spans.size());
+		final SpanData child = spans.get(0);
+		final SpanData reconcile = spans.get(1);
+		assertEquals("k8s.getDeployment", child.getName());
+		assertEquals("reconcile", reconcile.getName());
+		assertEquals(reconcile.getSpanId(), child.getParentSpanId());
+		assertEquals(reconcile.getTraceId(), child.getTraceId());
+
+		for (SpanData span : spans) {
+			assertEquals("default", span.getAttributes().get(TracingUtils.NAMESPACE));
+			assertEquals("wordcount", span.getAttributes().get(TracingUtils.APP));
+			assertNull(span.getAttributes().get(TracingUtils.CLUSTER));
+		}
+		assertEquals("deploy", reconcile.getAttributes().get(TracingUtils.ACTION));
+		assertNull(child.getAttributes().get(TracingUtils.ACTION));
+	}
+
+	@Test
+	public void testFailureIsRecorded() {
+		final IllegalStateException failure = new IllegalStateException("JobManager unreachable");
+		try {
+			TracingUtils.call("flink.listJobs", () -> {
+				throw failure;
+			});
+			fail("The failure was not rethrown");
+		} catch (IllegalStateException e) {
+			assertSame(failure, e);
+		}
+
+		final List<SpanData> spans = spanExporter.getFinishedSpanItems();
+		assertEquals(1, spans.size());
+		assertEquals("flink.listJobs", spans.get(0).getName());
+		assertEquals(StatusCode.ERROR, spans.get(0).getStatus().getStatusCode());
+		assertEquals(1, spans.get(0).getEvents().size());
+		assertEquals("exception", spans.get(0).getEvents().get(0).getName());
+	}
+
+	@Test
+	public void testTraceIdIsInLoggingContext() {
+		final AtomicReference<String> traceId = new AtomicReference<>();
+		final AtomicReference<String> childSpanId = new AtomicReference<>();
+		final AtomicReference<String> restoredSpanId = new AtomicReference<>();
+		TracingUtils.run("reconcile", () -> {
+			traceId.set(MDC.get(TracingUtils.MDC_TRACE_ID));
+			TracingUtils.run("k8s.getDeployment", () -> childSpanId.set(MDC.get(TracingUtils.MDC_SPAN_ID)));
+			restoredSpanId.set(MDC.get(TracingUtils.MDC_SPAN_ID));
+		});
+
+		final List<SpanData> spans = spanExporter.getFinishedSpanItems();
+		assertEquals(spans.get(1).getTraceId(), traceId.get());
+		assertEquals(spans.get(0).getSpanId(), childSpanId.get());
+		assertEquals(spans.get(1).getSpanId(), restoredSpanId.get());
+		assertNull(MDC.get(TracingUtils.MDC_TRACE_ID));
+		assertNull(MDC.get(TracingUtils.MDC_SPAN_ID));
+	}
+}
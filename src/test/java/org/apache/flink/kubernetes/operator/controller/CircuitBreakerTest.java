@@ -0,0 +1,79 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import org.apache.flink.kubernetes.operator.controller.CircuitBreaker.State;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+    private static final long HOUR_MS = 3600 * 1000;
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(3, HOUR_MS, HOUR_MS);
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertEquals(0, breaker.getMillisUntilProbe());
+
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(3, breaker.getConsecutiveFailures());
+        assertFalse(breaker.allowRequest());
+        assertTrue(breaker.getMillisUntilProbe() > 0);
+    }
+
+    @Test
+    public void testSuccessResetsFailures() {
+        final CircuitBreaker breaker = new CircuitBreaker(2, HOUR_MS, HOUR_MS);
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(1, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void testSuccessfulProbeCloses() {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 0, 0);
+        breaker.recordFailure();
+        assertEquals(State.OPEN, breaker.getState());
+
+        // The probe is due right away, further calls wait for its result
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.recordSuccess();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getConsecutiveFailures());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testFailedProbeDoublesInterval() throws Exception {
+        final CircuitBreaker breaker = new CircuitBreaker(1, 100, 150);
+        breaker.recordFailure();
+        assertTrue(breaker.getMillisUntilProbe() <= 100);
+
+        Thread.sleep(110);
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        // Doubled, but capped at the maximum interval
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getConsecutiveFailures());
+        assertFalse(breaker.allowRequest());
+        final long millisUntilProbe = breaker.getMillisUntilProbe();
+        assertTrue(millisUntilProbe > 100 && millisUntilProbe <= 150);
+    }
+}
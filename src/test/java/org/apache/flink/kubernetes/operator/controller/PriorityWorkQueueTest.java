@@ -0,0 +1,128 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import org.apache.flink.kubernetes.operator.controller.PriorityWorkQueue.Priority;
+
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PriorityWorkQueue}.
+ */
+public class PriorityWorkQueueTest {
+
+    private final PriorityWorkQueue workQueue = new PriorityWorkQueue();
+
+    @Test
+    public void testLanesAreServedByWeightUnderLoad() throws Exception {
+        addKeys("high", 100, Priority.HIGH);
+        addKeys("medium", 100, Priority.MEDIUM);
+        addKeys("low", 100, Priority.LOW);
+
+        final Map<Priority, Integer> taken = new EnumMap<>(Priority.class);
+        for (int i = 0; i < 24; i++) {
+            taken.merge(workQueue.take().getPriority(), 1, Integer::sum);
+        }
+        assertEquals(16, (int) taken.get(Priority.HIGH));
+        assertEquals(6, (int) taken.get(Priority.MEDIUM));
+        assertEquals(2, (int) taken.get(Priority.LOW));
+    }
+
+    @Test
+    public void testKeysOfALaneAreTakenInOrder() throws Exception {
+        workQueue.add("first", Priority.LOW);
+        workQueue.add("second", Priority.LOW);
+
+        assertEquals("first", workQueue.take().getKey());
+        assertEquals("second", workQueue.take().getKey());
+    }
+
+    @Test
+    public void testLowPriorityKeysMakeProgress() throws Exception {
+        workQueue.add("resync", Priority.LOW);
+        addKeys("high", 1000, Priority.HIGH);
+
+        for (int i = 0; i < 12; i++) {
+            final PriorityWorkQueue.Item item = workQueue.take();
+            if ("resync".equals(item.getKey())) {
+                return;
+            }
+            // The high lane stays busy
+            workQueue.add(item.getKey(), Priority.HIGH);
+        }
+        throw new AssertionError("The low lane was starved");
+    }
+
+    @Test
+    public void testIdleLanesAreSkipped() throws Exception {
+        workQueue.add("resync", Priority.LOW);
+
+        final PriorityWorkQueue.Item item = workQueue.take();
+        assertEquals("resync", item.getKey());
+        assertEquals(Priority.LOW, item.getPriority());
+    }
+
+    @Test
+    public void testKeysAreDeduplicated() throws Exception {
+        workQueue.add("app", Priority.MEDIUM);
+        workQueue.add("app", Priority.MEDIUM);
+        // Cannot lower the priority of a queued key
+        workQueue.add("app", Priority.LOW);
+        assertEquals(1, workQueue.size());
+
+        final PriorityWorkQueue.Item item = workQueue.take();
+        assertEquals("app", item.getKey());
+        assertEquals(Priority.MEDIUM, item.getPriority());
+        assertEquals(0, workQueue.size());
+
+        // A taken key can be queued again
+        workQueue.add("app", Priority.LOW);
+        assertEquals(1, workQueue.size());
+    }
+
+    @Test
+    public void testRaisedPriorityDropsStaleEntry() throws Exception {
+        workQueue.add("app", Priority.LOW);
+        workQueue.add("other", Priority.LOW);
+        workQueue.add("app", Priority.HIGH);
+        assertEquals(2, workQueue.size());
+
+        final PriorityWorkQueue.Item raised = workQueue.take();
+        assertEquals("app", raised.getKey());
+        assertEquals(Priority.HIGH, raised.getPriority());
+
+        // The entry of app left in the low lane is skipped
+        workQueue.add("last", Priority.LOW);
+        assertEquals("other", workQueue.take().getKey());
+        assertEquals("last", workQueue.take().getKey());
+        assertEquals(0, workQueue.size());
+    }
+
+    @Test
+    public void testTakeWaitsForKey() throws Exception {
+        final Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            workQueue.add("app", Priority.HIGH);
+        });
+        producer.start();
+
+        final PriorityWorkQueue.Item item = workQueue.take();
+        assertEquals("app", item.getKey());
+        assertTrue(item.getQueueTimeMillis() >= 0);
+        producer.join();
+    }
+
+    private void addKeys(String prefix, int count, Priority priority) {
+        for (int i = 0; i < count; i++) {
+            workQueue.add(prefix + "-" + i, priority);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.apache.flink.kubernetes.operator.controller;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.kubernetes.operator.crd.spec.SavepointRetention;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SavepointCleaner}.
+ */
+public class SavepointCleanerTest {
+
+    private static final String JOB_ID = "aaaaaa00000000000000000000000001";
+    private static final String OTHER_JOB_ID = "bbbbbb00000000000000000000000001";
+    private static final String ZERO_JOB_ID = "00000000000000000000000000000000";
+    private static final long HOUR_MS = 3600 * 1000;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final long now = System.currentTimeMillis();
+    private Path savepointsDir;
+
+    @Before
+    public void createSavepointsDir() throws IOException {
+        savepointsDir = new Path(temporaryFolder.newFolder("savepoints").toURI());
+    }
+
+    @Test
+    public void testKeepLast() throws Exception {
+        createSavepoint("savepoint-aaaaaa-000000000001", 4);
+        createSavepoint("savepoint-aaaaaa-000000000002", 3);
+        createSavepoint("savepoint-aaaaaa-000000000003", 2);
+        createSavepoint("savepoint-aaaaaa-000000000004", 1);
+
+        assertEquals(
+            names("savepoint-aaaaaa-000000000001", "savepoint-aaaaaa-000000000002"),
+            findExpired(Collections.singletonList(JOB_ID), retention(2, 0), Collections.emptySet()));
+    }
+
+    @Test
+    public void testMaxAge() throws Exception {
+        createSavepoint("savepoint-aaaaaa-000000000001", 5);
+        createSavepoint("savepoint-aaaaaa-000000000002", 3);
+        createSavepoint("savepoint-aaaaaa-000000000003", 1);
+
+        assertEquals(
+            names("savepoint-aaaaaa-000000000001"),
+            findExpired(Collections.singletonList(JOB_ID), retention(0, 4 * 3600), Collections.emptySet()));
+    }
+
+    @Test
+    public void testProtectedSavepointsAreKept() throws Exception {
+        createSavepoint("savepoint-aaaaaa-000000000001", 3);
+        createSavepoint("savepoint-aaaaaa-000000000002", 2);
+        createSavepoint("savepoint-aaaaaa-000000000003", 1);
+
+        // The restore path may point at the metadata file of the savepoint
+        final Set<String> protectedSavepoints = names(SavepointCleaner.getSavepointName(
+            savepointsDir + "/savepoint-aaaaaa-000000000001/_metadata"));
+        assertEquals(
+            names("savepoint-aaaaaa-000000000002"),
+            findExpired(Collections.singletonList(JOB_ID), retention(1, 0), protectedSavepoints));
+    }
+
+    @Test
+    public void testSavepointsOfOtherJobsAreKept() throws Exception {
+        createSavepoint("savepoint-aaaaaa-000000000001", 3);
+        createSavepoint("savepoint-bbbbbb-000000000002", 2);
+        createSavepoint("savepoint-aaaaaa-000000000003", 1);
+        // Not a savepoint
+        assertTrue(new File(temporaryFolder.getRoot(), "savepoints/checkpoints").mkdir());
+
+        assertEquals(
+            names("savepoint-aaaaaa-000000000001"),
+            findExpired(Collections.singletonList(JOB_ID), retention(1, 0), Collections.emptySet()));
+        assertEquals(
+            names("savepoint-bbbbbb-000000000002"),
+            findExpired(Collections.singletonList(OTHER_JOB_ID), retention(0, 3600), Collections.emptySet()));
+    }
+
+    @Test
+    public void testSavepointsOfZeroJobIdAreKept() throws Exception {
+        createSavepoint("savepoint-000000-000000000001", 3);
+        createSavepoint("savepoint-000000-000000000002", 2);
+
+        assertEquals(
+            Collections.emptySet(),
+            findExpired(Collections.singletonList(ZERO_JOB_ID), retention(1, 3600), Collections.emptySet()));
+    }
+
+    @Test
+    public void testSavepointsWithoutMetadataAreKept() throws Exception {
+        createSavepoint("savepoint-aaaaaa-000000000001", 3);
+        // E.g. a savepoint that is still being written
+        assertTrue(new File(temporaryFolder.getRoot(), "savepoints/savepoint-aaaaaa-000000000002").mkdir());
+
+        assertEquals(
+            names("savepoint-aaaaaa-000000000001"),
+            findExpired(Collections.singletonList(JOB_ID), retention(0, 3600), Collections.emptySet()));
+    }
+
+    @Test
+    public void testMissingDirectory() throws Exception {
+        assertEquals(
+            Collections.emptyList(),
+            SavepointCleaner.findExpiredSavepoints(
+                new Path(savepointsDir, "missing"),
+                Collections.singletonList(JOB_ID),
+                retention(1, 0),
+                Collections.emptySet(),
+                now));
+    }
+
+    private void createSavepoint(String name, int ageHours) throws IOException {
+        final File savepoint = new File(temporaryFolder.getRoot(), "savepoints/" + name);
+        assertTrue(savepoint.mkdir());
+        final File metadata = new File(savepoint, "_metadata");
+        assertTrue(metadata.createNewFile());
+        assertTrue(metadata.setLastModified(now - ageHours * HOUR_MS));
+    }
+
+    private Set<String> findExpired(List<String> jobIds, SavepointRetention retention, Set<String> protectedSavepoints)
+            throws IOException {
+        return SavepointCleaner.findExpiredSavepoints(savepointsDir, jobIds, retention, protectedSavepoints, now)
+            .stream()
+            .map(Path::getName)
+            .collect(Collectors.toSet());
+    }
+
+    private static Set<String> names(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    private static SavepointRetention retention(int keepLast, long maxAgeSeconds) {
+        final SavepointRetention retention = new SavepointRetention();
+        retention.setKeepLast(keepLast);
+        retention.setMaxAgeSeconds(maxAgeSeconds);
+        return retention;
+    }
+}